@@ -2,6 +2,7 @@ package com.example.movies;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Info;
 
@@ -9,6 +10,7 @@ import io.swagger.v3.oas.annotations.info.Info;
     info = @Info(title = "University API", version = "v1", description = "API documentation for University application")
 )
 @SpringBootApplication
+@EnableScheduling
 public class MoviesApplication {
 
 	public static void main(String[] args) {
@@ -1,13 +1,25 @@
 package com.example.movies.controller;
 
+import com.example.movies.event.UserChangedEvent;
 import com.example.movies.model.Role;
 import com.example.movies.model.User;
 import com.example.movies.repository.RoleRepository;
 import com.example.movies.repository.UserRepository;
 import com.example.movies.security.JwtUtils;
+import com.example.movies.security.TokenRevocationList;
+import com.example.movies.security.UserPrincipal;
+import com.example.movies.service.CustomUserDetailsService;
+import com.example.movies.service.PasswordHashingService;
+import com.example.movies.service.UsernameBloomFilter;
+import io.jsonwebtoken.Claims;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashSet;
@@ -28,20 +40,35 @@ public class AuthController {
     private RoleRepository roleRepository;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UsernameBloomFilter usernameBloomFilter;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Value("${security.password-hashing.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
     @Operation(summary = "User Registration", description = "Registers a new user. Доступен для: все")
     @PostMapping("/register")
-    public String register(@RequestParam String username,
-                           @RequestParam String password,
-                           @RequestParam String email) {
+    public ResponseEntity<String> register(@RequestParam String username,
+                                           @RequestParam String password,
+                                           @RequestParam String email) {
         logger.info("Attempting to register user: {}", username);
         try {
-            if (userRepository.findByUsername(username) != null) {
-                return "Пользователь с таким именем уже существует!";
+            if (usernameBloomFilter.exists(username)) {
+                return ResponseEntity.ok("Пользователь с таким именем уже существует!");
             }
 
             Role userRole = roleRepository.findByName("ROLE_USER");
@@ -50,57 +77,69 @@ public class AuthController {
                 roleRepository.save(userRole);
             }
 
-            User newUser = new User(username, passwordEncoder.encode(password));
+            User newUser = new User(username, passwordHashingService.encode(password));
             newUser.setEmail(email);
             Set<Role> roles = new HashSet<>();
             roles.add(userRole);
             newUser.setRoles(roles);
 
             userRepository.save(newUser);
+            eventPublisher.publishEvent(UserChangedEvent.created(newUser.getId(), newUser.getUsername()));
 
             logger.info("User {} registered successfully", username);
-            String token = jwtUtils.generateToken(newUser.getUsername());
+            String token = jwtUtils.generateToken(newUser);
 
-            return token;
+            return ResponseEntity.ok(token);
+        } catch (PasswordHashingService.BusyException e) {
+            return serviceBusy();
         } catch(Exception e) {
             logger.error("Error during user registration for {}: {}", username, e.getMessage(), e);
-            return "Registration failed: " + e.getMessage();
+            return ResponseEntity.ok("Registration failed: " + e.getMessage());
         }
     }
 
     @Operation(summary = "User Login", description = "Authenticates user and returns JWT. Доступен для: все")
     @PostMapping("/login")
-    public String login(@RequestParam String username,
-                        @RequestParam String password) {
+    public ResponseEntity<String> login(@RequestParam String username,
+                                        @RequestParam String password) {
         logger.info("Attempting login for user: {}", username);
         try {
-            User user = userRepository.findByUsername(username);
-            if (user == null) {
-                return "Неверные данные (user not found)";
+            UserPrincipal user;
+            try {
+                user = userDetailsService.loadUserByUsername(username);
+            } catch (UsernameNotFoundException e) {
+                return ResponseEntity.ok("Неверные данные (user not found)");
+            }
+
+            if (!passwordHashingService.matches(password, user.getPassword())) {
+                return ResponseEntity.ok("Неверный пароль");
             }
 
-            if (!passwordEncoder.matches(password, user.getPassword())) {
-                return "Неверный пароль";
+            // Стоимость bcrypt повысили в конфиге — перехэшируем в фоне, пока пароль известен
+            if (passwordHashingService.needsRehash(user.getPassword())) {
+                passwordHashingService.rehashAsync(password, hash -> updatePasswordHash(user.getId(), user.getUsername(), user.getPassword(), hash));
             }
 
-            String token = jwtUtils.generateToken(user.getUsername());
+            String token = jwtUtils.generateToken(user);
             logger.info("User {} logged in successfully", username);
-            return token;
+            return ResponseEntity.ok(token);
+        } catch (PasswordHashingService.BusyException e) {
+            return serviceBusy();
         } catch(Exception e) {
             logger.error("Error during login for {}: {}", username, e.getMessage(), e);
-            return "Login failed: " + e.getMessage();
+            return ResponseEntity.ok("Login failed: " + e.getMessage());
         }
     }
 
     @Operation(summary = "Admin Registration", description = "Registers a new admin. Доступен для: все (использовать только при инициализации)")
     @PostMapping("/register-admin")
-    public String registerAdmin(@RequestParam String username,
-                                @RequestParam String password,
-                                @RequestParam String email) {
+    public ResponseEntity<String> registerAdmin(@RequestParam String username,
+                                                @RequestParam String password,
+                                                @RequestParam String email) {
         logger.info("Attempting to register admin: {}", username);
         try {
-            if (userRepository.findByUsername(username) != null) {
-                return "Пользователь с таким именем уже существует!";
+            if (usernameBloomFilter.exists(username)) {
+                return ResponseEntity.ok("Пользователь с таким именем уже существует!");
             }
 
             Role adminRole = roleRepository.findByName("ROLE_ADMIN");
@@ -109,19 +148,57 @@ public class AuthController {
                 roleRepository.save(adminRole);
             }
 
-            User newUser = new User(username, passwordEncoder.encode(password));
+            User newUser = new User(username, passwordHashingService.encode(password));
             newUser.setEmail(email);
             Set<Role> roles = new HashSet<>();
             roles.add(adminRole);
             newUser.setRoles(roles);
             userRepository.save(newUser);
+            eventPublisher.publishEvent(UserChangedEvent.created(newUser.getId(), newUser.getUsername()));
 
             logger.info("Admin {} registered successfully", username);
-            String token = jwtUtils.generateToken(newUser.getUsername());
-            return token;
+            String token = jwtUtils.generateToken(newUser);
+            return ResponseEntity.ok(token);
+        } catch (PasswordHashingService.BusyException e) {
+            return serviceBusy();
         } catch(Exception e) {
             logger.error("Error during admin registration for {}: {}", username, e.getMessage(), e);
-            return "Admin registration failed: " + e.getMessage();
+            return ResponseEntity.ok("Admin registration failed: " + e.getMessage());
         }
     }
+
+    @Operation(summary = "Logout", description = "Revokes the bearer token passed in the Authorization header. Доступен для: все")
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body("Токен не передан");
+        }
+        Claims claims = jwtUtils.verifyToken(authorization.substring(7));
+        if (claims == null) {
+            return ResponseEntity.badRequest().body("Недействительный токен");
+        }
+        if (claims.getId() == null) {
+            return ResponseEntity.badRequest().body("Токен выпущен без jti и не может быть отозван");
+        }
+        tokenRevocationList.revoke(claims.getId(), claims.getExpiration().toInstant());
+        logger.info("Token of user {} revoked", claims.getSubject());
+        return ResponseEntity.ok("Токен отозван");
+    }
+
+    // Условное обновление: если пароль успели сменить после логина, старый пароль не возвращается
+    private void updatePasswordHash(Long userId, String username, String oldHash, String newHash) {
+        if (userRepository.replacePasswordHash(userId, oldHash, newHash) == 0) {
+            logger.info("Password of user {} changed during rehash, upgrade skipped", username);
+            return;
+        }
+        eventPublisher.publishEvent(UserChangedEvent.updated(userId, username, username));
+        logger.info("Password hash of user {} upgraded to the configured bcrypt cost", username);
+    }
+
+    private ResponseEntity<String> serviceBusy() {
+        logger.warn("Password hashing pool saturated, rejecting request");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("Сервис перегружен, повторите попытку позже");
+    }
 }
@@ -1,22 +1,36 @@
 package com.example.movies.controller;
 
 import com.example.movies.JsonViews;
+import com.example.movies.dto.CourseExportRow;
+import com.example.movies.dto.CourseSearchHit;
+import com.example.movies.event.CourseChangedEvent;
 import com.example.movies.model.Course;
 import com.example.movies.model.User;
+import com.example.movies.pagination.KeysetPagination;
+import com.example.movies.pagination.PagedQueries;
 import com.example.movies.repository.CourseRepository;
 import com.example.movies.repository.UserRepository;
+import com.example.movies.service.BulkImportService;
+import com.example.movies.service.CourseCatalogCache;
+import com.example.movies.service.CourseSearchIndex;
+import com.example.movies.service.ExportService;
 import com.example.movies.specification.CourseSpecifications;
 import com.fasterxml.jackson.annotation.JsonView;
 import io.swagger.v3.oas.annotations.Operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 @RestController
@@ -31,13 +45,64 @@ public class CoursesController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PagedQueries pagedQueries;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private CourseSearchIndex courseSearchIndex;
+
+    @Autowired
+    private CourseCatalogCache courseCatalogCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Operation(summary = "Get All Courses", description = "Returns all courses. Accessible for: ADMIN")
     @PreAuthorize("hasRole('ADMIN')")
     @JsonView(JsonViews.Public.class)
     @GetMapping
     public List<Course> getAllCourses() {
         logger.info("Fetching all courses");
-        return courseRepository.findAll();
+        return courseCatalogCache.findAll(courseRepository::findAll);
+    }
+
+    @Operation(summary = "Export Courses", description = "Выгрузка всех курсов потоком (курсор БД): format=ndjson|csv. Accessible for: ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCourses(@RequestParam(defaultValue = "ndjson") String format) {
+        logger.info("Exporting courses as {}", format);
+        return exportService.export("courses", ExportService.Format.of(format), CourseExportRow.class,
+                courseRepository::streamExportRows);
+    }
+
+    @Operation(summary = "Search Courses", description = "Поиск подстроки в названии, описании и имени преподавателя по in-memory триграммному индексу, лучшие совпадения первыми. Accessible for: USER, TEACHER, ADMIN")
+    @PreAuthorize("hasAnyRole('USER', 'TEACHER', 'ADMIN')")
+    @GetMapping("/search")
+    public ResponseEntity<?> searchCourses(@RequestParam String q,
+                                           @RequestParam(defaultValue = "20") int limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "q не должен быть пустым"));
+        }
+        int capped = Math.max(1, Math.min(limit, 100));
+        if (courseSearchIndex.isReady()) {
+            return ResponseEntity.ok(courseSearchIndex.search(q, capped));
+        }
+        // индекс ещё строится после старта — отвечаем через LIKE по названию
+        logger.info("Course search index not ready, falling back to SQL for '{}'", q);
+        List<CourseSearchHit> hits = courseRepository.findAll(
+                        CourseSpecifications.filterCourses(Map.of("title_like", q.strip())), PageRequest.of(0, capped))
+                .map(course -> new CourseSearchHit(course.getId(), course.getTitle(), course.getDescription(),
+                        course.getCreditHours(),
+                        course.getTeacher() == null ? null : course.getTeacher().getId(),
+                        course.getTeacher() == null ? null : course.getTeacher().getUsername(), 0))
+                .getContent();
+        return ResponseEntity.ok(hits);
     }
 
     @Operation(summary = "Get Course By ID", description = "Returns course by ID. Accessible for: ADMIN")
@@ -46,7 +111,7 @@ public class CoursesController {
     @GetMapping("/{id}")
     public ResponseEntity<Course> getCourseById(@PathVariable Long id) {
         logger.info("Fetching course with id: {}", id);
-        return courseRepository.findById(id)
+        return courseCatalogCache.findById(id, courseRepository::findById)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -56,7 +121,24 @@ public class CoursesController {
     @PostMapping
     public Course createCourse(@RequestBody Course course) {
         logger.info("Creating course: {}", course.getTitle());
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        eventPublisher.publishEvent(CourseChangedEvent.created(saved, teacherUsername(saved)));
+        return saved;
+    }
+
+    @Operation(summary = "Import Courses", description = "Массовый импорт из CSV (title,description,creditHours,teacherUsername), ошибки — по номерам строк. Accessible for: ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/import", consumes = "multipart/form-data")
+    public ResponseEntity<?> importCourses(@RequestPart MultipartFile file) {
+        logger.info("Importing courses from {}", file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(bulkImportService.importCourses(in));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error reading course import {}: {}", file.getOriginalFilename(), e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Map.of("error", "Не удалось прочитать CSV: " + e.getMessage()));
+        }
     }
 
     @Operation(summary = "Update Course", description = "Updates a course. Accessible for: ADMIN")
@@ -70,7 +152,9 @@ public class CoursesController {
                     course.setTitle(courseDetails.getTitle());
                     course.setTeacher(courseDetails.getTeacher());
                     course.setDescription(courseDetails.getDescription());
-                    return ResponseEntity.ok(courseRepository.save(course));
+                    Course saved = courseRepository.save(course);
+                    eventPublisher.publishEvent(CourseChangedEvent.updated(saved, teacherUsername(saved)));
+                    return ResponseEntity.ok(saved);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -83,6 +167,7 @@ public class CoursesController {
         return courseRepository.findById(id)
                 .map(course -> {
                     courseRepository.delete(course);
+                    eventPublisher.publishEvent(CourseChangedEvent.deleted(id));
                     return ResponseEntity.ok().build();
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -98,70 +183,94 @@ public class CoursesController {
         if (course == null || teacher == null) return ResponseEntity.badRequest().build();
 
         course.setTeacher(teacher);
-        return ResponseEntity.ok(courseRepository.save(course));
+        Course saved = courseRepository.save(course);
+        eventPublisher.publishEvent(CourseChangedEvent.updated(saved, teacher.getUsername()));
+        return ResponseEntity.ok(saved);
     }
 
-    @Operation(summary = "Get Paginated Courses", description = "Returns paginated and sorted list of courses. Format: sort=title,asc")
+    @Operation(summary = "Get Paginated Courses", description = "Returns paginated and sorted list of courses. Format: sort=title,asc. totals=exact|none|cached: none — без count-запроса (только hasNext), cached — приблизительный total")
     @PreAuthorize("hasRole('ADMIN')")
     @JsonView(JsonViews.Public.class)
     @GetMapping("/paginated")
     public ResponseEntity<Map<String, Object>> getPaginatedCourses(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "title,asc") String sort) {
+            @RequestParam(defaultValue = "title,asc") String sort,
+            @RequestParam(defaultValue = "exact") String totals) {
 
         try {
             String[] sortParts = sort.split(",");
             Sort.Order order = new Sort.Order(Sort.Direction.fromString(sortParts[1]), sortParts[0]);
             Pageable pageable = PageRequest.of(page, size, Sort.by(order));
-            Page<Course> coursePage = courseRepository.findAll(pageable);
+            Specification<Course> all = (root, query, cb) -> null;
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("content", coursePage.getContent());
-            response.put("page", coursePage.getNumber());
-            response.put("size", coursePage.getSize());
-            response.put("totalElements", coursePage.getTotalElements());
-            response.put("totalPages", coursePage.getTotalPages());
-            response.put("last", coursePage.isLast());
+            PagedQueries.TotalsMode mode = PagedQueries.TotalsMode.of(totals);
+
+            Map<String, Object> response = courseCatalogCache.page(page + ":" + size + ":" + order + ":" + mode,
+                    () -> pagedQueries.fetch(courseRepository, all, "courses", Map.of(), pageable, mode));
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error fetching paginated courses: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body(Map.of("error", "Invalid pagination or sorting parameters"));
         }
     }
 
-    @Operation(summary = "Filter Courses", description = "Filter by title, title_like, instructorName. Accessible for: ADMIN")
+    @Operation(summary = "Filter Courses", description = "Filter by title, title_like, instructorName. Параметр after=<курсор> (пустой для первой страницы) включает keyset-пагинацию: в ответе nextCursor. totals=exact|none|cached. Accessible for: ADMIN")
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/filter")
     public ResponseEntity<Map<String, Object>> filterCourses(
             @RequestParam Map<String, String> allParams,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "id,asc") String sort // теперь строка, не массив
+            @RequestParam(defaultValue = "id,asc") String sort, // теперь строка, не массив
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "exact") String totals
     ) {
         try {
             // сортировка по одному полю
             String[] sortParams = sort.split(",");
             Sort.Order order = new Sort.Order(Sort.Direction.fromString(sortParams[1]), sortParams[0]);
 
-            Pageable pageable = PageRequest.of(page, size, Sort.by(order));
             Specification<Course> spec = CourseSpecifications.filterCourses(allParams);
 
-            Page<Course> result = courseRepository.findAll(spec, pageable);
+            // after=<курсор> (пустой — первая страница): keyset-пагинация без OFFSET и count
+            if (after != null) {
+                KeysetPagination.Window<Course> window = KeysetPagination.fetch(courseRepository, spec, order, after, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("content", window.content());
+                response.put("size", size);
+                response.put("nextCursor", window.nextCursor());
+                response.put("hasNext", window.hasNext());
+                response.put("filtersApplied", allParams);
+                return ResponseEntity.ok(response);
+            }
+
+            Pageable pageable = PageRequest.of(page, size, Sort.by(order));
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("content", result.getContent());
-            response.put("page", result.getNumber());
-            response.put("size", result.getSize());
-            response.put("totalElements", result.getTotalElements());
-            response.put("totalPages", result.getTotalPages());
-            response.put("last", result.isLast());
+            Map<String, Object> response = pagedQueries.fetch(courseRepository, spec, "courses",
+                    PagedQueries.filters(allParams), pageable, PagedQueries.TotalsMode.of(totals));
             response.put("filtersApplied", allParams);
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", "Filtering failed"));
         }
     }
+
+    // В теле запроса преподаватель может прийти только с id — имя берём из базы
+    private String teacherUsername(Course course) {
+        User teacher = course.getTeacher();
+        if (teacher == null || teacher.getId() == null) {
+            return null;
+        }
+        if (teacher.getUsername() != null) {
+            return teacher.getUsername();
+        }
+        return userRepository.findById(teacher.getId()).map(User::getUsername).orElse(null);
+    }
 }
@@ -1,19 +1,28 @@
 package com.example.movies.controller;
 
-import com.example.movies.model.User;
+import com.example.movies.model.EmailJob;
 import com.example.movies.repository.UserRepository;
+import com.example.movies.service.AttachmentStore;
+import com.example.movies.service.EmailJobService;
 import com.example.movies.service.EmailService;
+import com.example.movies.service.SmtpCircuitBreaker;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.constraints.Email;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/email")
@@ -25,6 +34,12 @@ public class EmailController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EmailJobService emailJobService;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
     @Operation(summary = "Send Simple Email", description = "Отправка простого текстового письма. Доступен ADMIN")
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/text")
@@ -55,44 +70,111 @@ public class EmailController {
         try {
             emailService.sendEmailWithUploadedAttachment(to, subject, message, file);
             return ResponseEntity.ok("Письмо с загруженным вложением отправлено!");
+        } catch (SmtpCircuitBreaker.CircuitOpenException e) {
+            return smtpUnavailable(e);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Ошибка при отправке письма: " + e.getMessage());
         }
     }
 
-    @Operation(summary = "Send Bulk Emails", description = "Массовая рассылка писем на выбранные адреса. Доступен ADMIN")
+    @Operation(summary = "Send Bulk Emails", description = "Массовая рассылка писем на выбранные адреса (фоновая задача, 202 + jobId). В тексте можно использовать {{email}}. Доступен ADMIN")
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/bulk")
     public ResponseEntity<?> sendBulkEmails(@RequestParam List<@Email String> recipients,
                                             @RequestParam String subject,
                                             @RequestParam String message) {
-        emailService.sendBulkEmail(recipients, subject, message);
-        return ResponseEntity.ok("Массовая рассылка выполнена!");
+        return emailJobService.createJob(subject, message, recipients::stream)
+                .map(this::accepted)
+                .orElseGet(() -> ResponseEntity.badRequest().body("Список получателей пуст"));
+    }
+
+    @Operation(summary = "Send Bulk Emails with Attachment", description = "Массовая рассылка с одним вложением: файл сохраняется один раз и читается с диска для каждого письма (фоновая задача, 202 + jobId). Доступен ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/bulk-attachment", consumes = "multipart/form-data")
+    public ResponseEntity<?> sendBulkEmailsWithAttachment(@RequestParam List<@Email String> recipients,
+                                                          @RequestParam String subject,
+                                                          @RequestParam String message,
+                                                          @RequestPart MultipartFile file) {
+        AttachmentStore.StoredAttachment attachment;
+        try {
+            attachment = attachmentStore.store(file);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Не удалось сохранить вложение: " + e.getMessage());
+        }
+        return emailJobService.createJob(subject, message, file.getOriginalFilename(), attachment, recipients::stream)
+                .map(this::accepted)
+                .orElseGet(() -> ResponseEntity.badRequest().body("Список получателей пуст"));
     }
 
-    @Operation(summary = "Send Email by Role", description = "Автоматическая рассылка по роли: STUDENT, TEACHER, ADMIN или ALL. Доступен ADMIN")
+    @Operation(summary = "Send Email by Role", description = "Автоматическая рассылка по роли: STUDENT, TEACHER, ADMIN или ALL (фоновая задача, 202 + jobId). Доступен ADMIN")
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/send-to-all")
     public ResponseEntity<?> sendToAllUsers(@RequestParam String subject,
                                             @RequestParam String message,
                                             @RequestParam(defaultValue = "ALL") String role) {
 
-        List<String> emails = userRepository.findAll().stream()
-                .filter(user -> user.getEmail() != null && !user.getEmail().isBlank())
-                .filter(user -> {
-                    if (role.equalsIgnoreCase("ALL")) return true;
-                    return user.getRoles().stream()
-                            .anyMatch(r -> r.getName().equalsIgnoreCase("ROLE_" + role));
-                })
-                .map(User::getEmail)
-                .collect(Collectors.toList());
-
-        if (emails.isEmpty()) {
-            return ResponseEntity.badRequest().body("Нет email-адресов для рассылки по роли: " + role);
+        // Фильтрация по роли в БД, адреса читаются курсором и пишутся в задачу порциями
+        Supplier<Stream<String>> emails = role.equalsIgnoreCase("ALL")
+                ? userRepository::streamAllEmails
+                : () -> userRepository.streamEmailsByRole("ROLE_" + role);
+
+        return emailJobService.createJob(subject, message, emails)
+                .map(this::accepted)
+                .orElseGet(() -> ResponseEntity.badRequest().body("Нет email-адресов для рассылки по роли: " + role));
+    }
+
+    @Operation(summary = "Get Bulk Email Job", description = "Статус фоновой рассылки: отправлено, ошибок, осталось. Доступен ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getJob(@PathVariable Long id) {
+        return emailJobService.find(id)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(jobStatus(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Cancel Bulk Email Job", description = "Останавливает фоновую рассылку после текущей порции писем. Доступен ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/jobs/{id}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable Long id) {
+        if (emailJobService.find(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!emailJobService.cancel(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Рассылка уже завершена или отменена");
         }
+        return ResponseEntity.ok(jobStatus(emailJobService.find(id).orElseThrow()));
+    }
+
+    // Цепь SMTP открыта — отвечаем сразу, а не держим поток до таймаута
+    @ExceptionHandler(SmtpCircuitBreaker.CircuitOpenException.class)
+    public ResponseEntity<String> smtpUnavailable(SmtpCircuitBreaker.CircuitOpenException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(e.getMessage());
+    }
+
+    private ResponseEntity<?> accepted(EmailJob job) {
+        Map<String, Object> response = jobStatus(job);
+        response.put("statusUrl", "/email/jobs/" + job.getId());
+        return ResponseEntity.accepted()
+                .location(URI.create("/email/jobs/" + job.getId()))
+                .body(response);
+    }
 
-        emailService.sendBulkEmail(emails, subject, message);
-        return ResponseEntity.ok("Письма отправлены " + emails.size() + " пользователям с ролью " + role.toUpperCase());
+    private Map<String, Object> jobStatus(EmailJob job) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", job.getId());
+        response.put("status", job.getStatus());
+        response.put("subject", job.getSubject());
+        response.put("attachment", job.getAttachmentName());
+        response.put("total", job.getTotal());
+        response.put("sent", job.getSentCount());
+        response.put("failed", job.getFailedCount());
+        response.put("pending", job.getTotal() - job.getSentCount() - job.getFailedCount());
+        response.put("createdAt", job.getCreatedAt());
+        response.put("updatedAt", job.getUpdatedAt());
+        return response;
     }
 }
@@ -1,21 +1,27 @@
 package com.example.movies.controller;
 
+import com.example.movies.dto.EnrollmentExportRow;
 import com.example.movies.model.Enrollment;
+import com.example.movies.pagination.KeysetPagination;
+import com.example.movies.pagination.PagedQueries;
 import com.example.movies.model.User;
 import com.example.movies.model.Course;
 import com.example.movies.repository.EnrollmentRepository;
 import com.example.movies.repository.UserRepository;
 import com.example.movies.repository.CourseRepository;
-import com.example.movies.service.EmailService;
+import com.example.movies.service.EnrollmentService;
+import com.example.movies.service.ExportService;
 import com.example.movies.specification.EnrollmentSpecifications;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -35,7 +41,13 @@ public class EnrollmentsController {
     private CourseRepository courseRepository;
 
     @Autowired
-    private EmailService emailService;
+    private EnrollmentService enrollmentService;
+
+    @Autowired
+    private PagedQueries pagedQueries;
+
+    @Autowired
+    private ExportService exportService;
 
     @Operation(summary = "Enroll student to course", description = "Enrolls a student to a course and sends email. Accessible for: USER or ADMIN")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
@@ -63,22 +75,13 @@ public class EnrollmentsController {
                 return ResponseEntity.badRequest().body("Студент уже зачислен на этот курс.");
             }
 
-            Enrollment enrollment = new Enrollment();
-            enrollment.setStudent(student);
-            enrollment.setCourse(course);
-            enrollment.setEnrollmentDate(LocalDate.now());
-
-            Enrollment saved = enrollmentRepository.save(enrollment);
-
-            // 📩 Email
-            String to = student.getEmail();
-            if (to != null && !to.isBlank()) {
-                String subject = "Зачисление на курс";
-                String message = String.format("Вы были зачислены на курс: %s", course.getTitle());
-                emailService.sendSimpleEmail(to, subject, message);
-            }
+            // Зачисление и письмо (через outbox) фиксируются одной транзакцией
+            Enrollment saved = enrollmentService.enroll(student, course);
 
             return ResponseEntity.ok(saved);
+        } catch (DataIntegrityViolationException e) {
+            // параллельный запрос успел зачислить раньше — сработал uk_enrollments_student_course
+            return ResponseEntity.badRequest().body("Студент уже зачислен на этот курс.");
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Ошибка при зачислении: " + e.getMessage());
         }
@@ -104,7 +107,15 @@ public class EnrollmentsController {
         return ResponseEntity.ok(enrollmentRepository.findAll());
     }
 
-    @Operation(summary = "Get paginated enrollments with filtering", description = "Returns enrollments with filters: studentId, courseId, enrollmentDate")
+    @Operation(summary = "Export enrollments", description = "Выгрузка всех зачислений потоком (курсор БД, без загрузки сущностей): format=ndjson|csv. Accessible for: ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportEnrollments(@RequestParam(defaultValue = "ndjson") String format) {
+        return exportService.export("enrollments", ExportService.Format.of(format), EnrollmentExportRow.class,
+                enrollmentRepository::streamExportRows);
+    }
+
+    @Operation(summary = "Get paginated enrollments with filtering", description = "Returns enrollments with filters: studentId, courseId, enrollmentDate. after=<cursor> (empty for the first page) switches to keyset pagination with nextCursor. totals=exact|none|cached")
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/filter")
     public ResponseEntity<Map<String, Object>> getFilteredEnrollments(
@@ -113,7 +124,9 @@ public class EnrollmentsController {
             @RequestParam(required = false) String enrollmentDate,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "id,asc") String sort
+            @RequestParam(defaultValue = "id,asc") String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "exact") String totals
     ) {
         try {
             LocalDate parsedDate = enrollmentDate != null ? LocalDate.parse(enrollmentDate) : null;
@@ -123,25 +136,33 @@ public class EnrollmentsController {
             String[] sortParams = sort.split(",");
             Sort.Direction direction = Sort.Direction.fromString(sortParams[1]);
             Sort.Order order = new Sort.Order(direction, sortParams[0]);
-            Pageable pageable = PageRequest.of(page, size, Sort.by(order));
-
-            Page<Enrollment> result = enrollmentRepository.findAll(spec, pageable);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("content", result.getContent());
-            response.put("page", result.getNumber());
-            response.put("size", result.getSize());
-            response.put("totalElements", result.getTotalElements());
-            response.put("totalPages", result.getTotalPages());
-            response.put("last", result.isLast());
 
             Map<String, Object> filters = new HashMap<>();
             if (studentId != null) filters.put("studentId", studentId);
             if (courseId != null) filters.put("courseId", courseId);
             if (enrollmentDate != null) filters.put("enrollmentDate", enrollmentDate);
+
+            // after=<курсор> (пустой — первая страница): keyset-пагинация без OFFSET и count
+            if (after != null) {
+                KeysetPagination.Window<Enrollment> window = KeysetPagination.fetch(enrollmentRepository, spec, order, after, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("content", window.content());
+                response.put("size", size);
+                response.put("nextCursor", window.nextCursor());
+                response.put("hasNext", window.hasNext());
+                response.put("filtersApplied", filters);
+                return ResponseEntity.ok(response);
+            }
+
+            Pageable pageable = PageRequest.of(page, size, Sort.by(order));
+
+            Map<String, Object> response = pagedQueries.fetch(enrollmentRepository, spec, "enrollments",
+                    filters, pageable, PagedQueries.TotalsMode.of(totals));
             response.put("filtersApplied", filters);
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", "Filtering failed"));
         }
@@ -1,12 +1,16 @@
 package com.example.movies.controller;
 
+import com.example.movies.event.CourseChangedEvent;
+import com.example.movies.event.UserChangedEvent;
 import com.example.movies.model.User;
 import com.example.movies.model.Role;
 import com.example.movies.model.Course;
 import com.example.movies.repository.UserRepository;
 import com.example.movies.repository.RoleRepository;
 import com.example.movies.repository.CourseRepository;
+import com.example.movies.service.UsernameBloomFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
@@ -31,6 +35,12 @@ public class SeedController {
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UsernameBloomFilter usernameBloomFilter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @PostMapping
     public String seedData() {
         logger.info("начало заполнения");
@@ -53,31 +63,34 @@ public class SeedController {
 
             for (int i = 1; i <= 4; i++) {
                 String username = "user" + i;
-                if (userRepository.findByUsername(username) == null) {
+                if (!usernameBloomFilter.exists(username)) {
                     User u = new User(username, passwordEncoder.encode("123123"));
                     u.setEmail(username + "@example.com");
                     u.setRoles(new HashSet<>(Arrays.asList(userRole)));
                     userRepository.save(u);
+                    eventPublisher.publishEvent(UserChangedEvent.created(u.getId(), u.getUsername()));
                 }
             }
 
             for (int i = 1; i <= 4; i++) {
                 String username = "teacher" + i;
-                if (userRepository.findByUsername(username) == null) {
+                if (!usernameBloomFilter.exists(username)) {
                     User u = new User(username, passwordEncoder.encode("123123"));
                     u.setEmail(username + "@example.com");
                     u.setRoles(new HashSet<>(Arrays.asList(teacherRole)));
                     userRepository.save(u);
+                    eventPublisher.publishEvent(UserChangedEvent.created(u.getId(), u.getUsername()));
                 }
             }
 
             for (int i = 1; i <= 4; i++) {
                 String username = "admin" + i;
-                if (userRepository.findByUsername(username) == null) {
+                if (!usernameBloomFilter.exists(username)) {
                     User u = new User(username, passwordEncoder.encode("123123"));
                     u.setEmail(username + "@example.com");
                     u.setRoles(new HashSet<>(Arrays.asList(adminRole)));
                     userRepository.save(u);
+                    eventPublisher.publishEvent(UserChangedEvent.created(u.getId(), u.getUsername()));
                 }
             }
 
@@ -86,6 +99,7 @@ public class SeedController {
                 course.setTitle("Course " + i);
                 course.setDescription("Description for course " + i);
                 courseRepository.save(course);
+                eventPublisher.publishEvent(CourseChangedEvent.created(course, null));
             }
 
             logger.info("заполнение завершено");
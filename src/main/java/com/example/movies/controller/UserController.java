@@ -1,23 +1,37 @@
 package com.example.movies.controller;
 
+import com.example.movies.dto.StudentSummary;
+import com.example.movies.event.UserChangedEvent;
 import com.example.movies.specification.StudentSpecifications;
 import com.example.movies.model.Role;
 import com.example.movies.model.User;
+import com.example.movies.pagination.KeysetPagination;
+import com.example.movies.pagination.PagedQueries;
 import com.example.movies.repository.RoleRepository;
 import com.example.movies.repository.UserRepository;
+import com.example.movies.security.TokenVersionRegistry;
+import com.example.movies.service.BulkImportService;
+import com.example.movies.service.ExportService;
+import com.example.movies.service.StudentSuggestIndex;
+import com.example.movies.service.UsernameBloomFilter;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/students")
@@ -25,6 +39,11 @@ public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
+    private static final String STUDENT_ROLE = "ROLE_USER";
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Set<String> SORTABLE = Set.of("id", "username", "email");
+
+
     @Autowired
     private UserRepository userRepository;
 
@@ -34,22 +53,82 @@ public class UserController {
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
-    @Operation(summary = "Get All Students", description = "Returns all students. Доступен для: ADMIN, TEACHER")
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private UsernameBloomFilter usernameBloomFilter;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private PagedQueries pagedQueries;
+
+    @Autowired
+    private StudentSuggestIndex studentSuggestIndex;
+
+    @Operation(summary = "Get All Students", description = "Returns students page by page (id, username, email). sort=id|username|email,asc|desc. Доступен для: ADMIN, TEACHER")
     @PreAuthorize("hasAnyRole('ADMIN','TEACHER')")
     @GetMapping
-    public List<User> getAllStudents() {
-        logger.info("Fetching all students");
+    public ResponseEntity<Map<String, Object>> getAllStudents(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id,asc") String sort) {
+        logger.info("Fetching students page {} (size {})", page, size);
         try {
-            return userRepository.findAll()
-                    .stream()
-                    .filter(u -> u.getRoles().stream().anyMatch(r -> r.getName().equals("ROLE_USER")))
-                    .collect(Collectors.toList());
+            String[] sortParams = sort.split(",");
+            Sort.Direction direction = sortParams.length > 1 ? Sort.Direction.fromString(sortParams[1]) : Sort.Direction.ASC;
+            // Сортировка только по полям DTO; неизвестное поле — ошибка клиента, а не молчаливый id
+            if (!SORTABLE.contains(sortParams[0])) {
+                return ResponseEntity.badRequest().body(Map.of("error",
+                        "Сортировка возможна только по полям: id, username, email"));
+            }
+            Pageable pageable = PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), Sort.by(direction, sortParams[0]));
+
+            Page<StudentSummary> result = userRepository.findSummariesByRole(STUDENT_ROLE, pageable);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("content", result.getContent());
+            response.put("page", result.getNumber());
+            response.put("size", result.getSize());
+            response.put("totalElements", result.getTotalElements());
+            response.put("totalPages", result.getTotalPages());
+            response.put("last", result.isLast());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            // size < 1, page < 0 или неизвестное направление сортировки
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch(Exception e) {
             logger.error("Error fetching students", e);
             throw e;
         }
     }
 
+    @Operation(summary = "Stream All Students", description = "Все студенты без пагинации в формате NDJSON (по строке на студента), читаются курсором. Доступен для: ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllStudents() {
+        logger.info("Streaming all students");
+        return exportService.export("students", ExportService.Format.NDJSON, StudentSummary.class,
+                () -> userRepository.streamSummariesByRole(STUDENT_ROLE));
+    }
+
+    @Operation(summary = "Export Students", description = "Выгрузка всех студентов потоком: format=ndjson|csv. Память не зависит от числа строк. Доступен для: ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportStudents(@RequestParam(defaultValue = "ndjson") String format) {
+        logger.info("Exporting students as {}", format);
+        return exportService.export("students", ExportService.Format.of(format), StudentSummary.class,
+                () -> userRepository.streamSummariesByRole(STUDENT_ROLE));
+    }
+
     @Operation(summary = "Get Student By ID", description = "Returns student by ID. Доступен для: ADMIN, TEACHER")
     @PreAuthorize("hasAnyRole('ADMIN','TEACHER')")
     @GetMapping("/{id}")
@@ -74,7 +153,7 @@ public class UserController {
     public User createStudent(@RequestBody User user) {
         logger.info("Creating student: {}", user.getUsername());
         try {
-            if(userRepository.findByUsername(user.getUsername()) != null) {
+            if(usernameBloomFilter.exists(user.getUsername())) {
                 throw new RuntimeException("Пользователь с таким именем уже существует!");
             }
             user.setPassword(passwordEncoder.encode(user.getPassword()));
@@ -86,13 +165,30 @@ public class UserController {
             Set<Role> roles = new HashSet<>();
             roles.add(userRole);
             user.setRoles(roles);
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            eventPublisher.publishEvent(UserChangedEvent.created(saved.getId(), saved.getUsername()));
+            return saved;
         } catch(Exception e) {
             logger.error("Error creating student {}: {}", user.getUsername(), e.getMessage(), e);
             throw e;
         }
     }
 
+    @Operation(summary = "Import Students", description = "Массовый импорт из CSV (username,password,email): порциями, пароли хэшируются параллельно, ошибки — по номерам строк. Доступен для: ADMIN")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/import", consumes = "multipart/form-data")
+    public ResponseEntity<?> importStudents(@RequestPart MultipartFile file) {
+        logger.info("Importing students from {}", file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(bulkImportService.importStudents(in));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error reading student import {}: {}", file.getOriginalFilename(), e.getMessage(), e);
+            return ResponseEntity.badRequest().body(Map.of("error", "Не удалось прочитать CSV: " + e.getMessage()));
+        }
+    }
+
     @Operation(summary = "Update Student", description = "Updates student data. Доступен для: ADMIN")
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{id}")
@@ -102,11 +198,23 @@ public class UserController {
             Optional<User> optionalStudent = userRepository.findById(id);
             if(optionalStudent.isPresent()){
                 User user = optionalStudent.get();
+                String previousUsername = user.getUsername();
+                boolean credentialsChanged = !Objects.equals(user.getUsername(), userDetails.getUsername());
                 user.setUsername(userDetails.getUsername());
                 if(userDetails.getPassword() != null && !userDetails.getPassword().isEmpty()){
                     user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
+                    credentialsChanged = true;
+                }
+                // Старые токены содержат прежнее имя/пароль — выдаём новую версию
+                if (credentialsChanged) {
+                    user.setTokenVersion(user.getTokenVersion() + 1);
                 }
-                return ResponseEntity.ok(userRepository.save(user));
+                User saved = userRepository.save(user);
+                if (credentialsChanged) {
+                    tokenVersionRegistry.bump(saved.getId(), saved.getTokenVersion());
+                }
+                eventPublisher.publishEvent(UserChangedEvent.updated(saved.getId(), previousUsername, saved.getUsername()));
+                return ResponseEntity.ok(saved);
             }
             logger.warn("Student id {} not found for update", id);
             return ResponseEntity.notFound().build();
@@ -119,12 +227,18 @@ public class UserController {
     @Operation(summary = "Delete Student", description = "Deletes a student. Доступен для: ADMIN")
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<?> deleteStudent(@PathVariable Long id) {
         logger.info("Deleting student with id: {}", id);
         try {
             Optional<User> optionalStudent = userRepository.findById(id);
             if(optionalStudent.isPresent()){
-                userRepository.delete(optionalStudent.get());
+                User user = optionalStudent.get();
+                // flush — чтобы нарушение внешних ключей (зачисления) откатило транзакцию до отзыва токенов
+                userRepository.delete(user);
+                userRepository.flush();
+                tokenVersionRegistry.revokeAll(id);
+                eventPublisher.publishEvent(UserChangedEvent.deleted(id, user.getUsername()));
                 return ResponseEntity.ok().build();
             }
             logger.warn("Student id {} not found for deletion", id);
@@ -135,34 +249,63 @@ public class UserController {
         }
     }
 
-    @Operation(summary = "Filter Students", description = "Returns paginated, sorted, and filtered list of students")
+    @Operation(summary = "Suggest Students", description = "Typeahead: students whose username or email starts with q, from an in-memory prefix index, usernames first. Accessible for: ADMIN, TEACHER")
+    @PreAuthorize("hasAnyRole('ADMIN','TEACHER')")
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggestStudents(@RequestParam String q,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "q не должен быть пустым"));
+        }
+        int capped = Math.max(1, Math.min(limit, 50));
+        if (studentSuggestIndex.isReady()) {
+            return ResponseEntity.ok(studentSuggestIndex.suggest(q, capped));
+        }
+        // индекс ещё строится после старта — префиксный LIKE по имени среди студентов, без count-запроса
+        logger.info("Student suggest index not ready, falling back to SQL for '{}'", q);
+        List<StudentSummary> students = userRepository.findSummariesByRoleAndUsernameLike(STUDENT_ROLE,
+                q.strip().toLowerCase() + "%", PageRequest.of(0, capped));
+        return ResponseEntity.ok(students);
+    }
+
+    @Operation(summary = "Filter Students", description = "Returns paginated, sorted, and filtered list of students. after=<cursor> (empty for the first page) switches to keyset pagination with nextCursor. totals=exact|none|cached")
     @PreAuthorize("hasAnyRole('ADMIN','TEACHER')")
     @GetMapping("/filter")
     public ResponseEntity<Map<String, Object>> getFilteredStudents(
             @RequestParam Map<String, String> allParams,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "id,asc") String sort) {
+            @RequestParam(defaultValue = "id,asc") String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "exact") String totals) {
 
         try {
             String[] sortParams = sort.split(",");
             Sort.Direction direction = sortParams.length > 1 ? Sort.Direction.fromString(sortParams[1]) : Sort.Direction.ASC;
             Sort.Order order = new Sort.Order(direction, sortParams[0]);
-            Pageable pageable = PageRequest.of(page, size, Sort.by(order));
-
             Specification<User> spec = StudentSpecifications.filterStudents(allParams);
-            Page<User> result = userRepository.findAll(spec, pageable);
 
-            Map<String, Object> response = new HashMap<>();
-            response.put("content", result.getContent());
-            response.put("page", result.getNumber());
-            response.put("size", result.getSize());
-            response.put("totalElements", result.getTotalElements());
-            response.put("totalPages", result.getTotalPages());
-            response.put("last", result.isLast());
+            // after=<курсор> (пустой — первая страница): keyset-пагинация без OFFSET и count
+            if (after != null) {
+                KeysetPagination.Window<User> window = KeysetPagination.fetch(userRepository, spec, order, after, size);
+                Map<String, Object> response = new HashMap<>();
+                response.put("content", window.content());
+                response.put("size", size);
+                response.put("nextCursor", window.nextCursor());
+                response.put("hasNext", window.hasNext());
+                response.put("filtersApplied", allParams);
+                return ResponseEntity.ok(response);
+            }
+
+            Pageable pageable = PageRequest.of(page, size, Sort.by(order));
+
+            Map<String, Object> response = pagedQueries.fetch(userRepository, spec, "users",
+                    PagedQueries.filters(allParams), pageable, PagedQueries.TotalsMode.of(totals));
             response.put("filtersApplied", allParams);
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error fetching filtered students: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body(Map.of("error", "Filtering failed"));
@@ -0,0 +1,6 @@
+package com.example.movies.dto;
+
+/** Flat course row for exports; the teacher is reduced to id and username. */
+public record CourseExportRow(Long id, String title, String description, Integer creditHours,
+                              Long teacherId, String teacherUsername) {
+}
@@ -0,0 +1,6 @@
+package com.example.movies.dto;
+
+/** Course search result; a higher {@code score} is a better match. */
+public record CourseSearchHit(Long id, String title, String description, Integer creditHours,
+                              Long teacherId, String teacherUsername, int score) {
+}
@@ -0,0 +1,9 @@
+package com.example.movies.dto;
+
+import java.time.LocalDate;
+
+/** Flat enrollment row for exports; student and course are joined in, not loaded as entities. */
+public record EnrollmentExportRow(Long id, LocalDate enrollmentDate,
+                                  Long studentId, String studentUsername, String studentEmail,
+                                  Long courseId, String courseTitle) {
+}
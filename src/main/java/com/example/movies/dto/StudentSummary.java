@@ -0,0 +1,9 @@
+package com.example.movies.dto;
+
+/**
+ * Read-only view of a student for listings. Built directly by the JPQL
+ * constructor expression, so no {@code User} entity (and none of its eager
+ * roles) is loaded.
+ */
+public record StudentSummary(Long id, String username, String email) {
+}
@@ -0,0 +1,37 @@
+package com.example.movies.event;
+
+import com.example.movies.model.Course;
+
+/**
+ * Published after a course row is created, updated (including a new teacher)
+ * or deleted, so in-memory views of courses can be kept in sync. Carries the
+ * searchable fields so listeners do not have to reload the course.
+ */
+public record CourseChangedEvent(Type type, Long courseId, String title, String description,
+                                 Integer creditHours, Long teacherId, String teacherUsername) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static CourseChangedEvent created(Long courseId, String title, String description,
+                                             Integer creditHours, Long teacherId, String teacherUsername) {
+        return new CourseChangedEvent(Type.CREATED, courseId, title, description, creditHours, teacherId, teacherUsername);
+    }
+
+    public static CourseChangedEvent created(Course course, String teacherUsername) {
+        return of(Type.CREATED, course, teacherUsername);
+    }
+
+    public static CourseChangedEvent updated(Course course, String teacherUsername) {
+        return of(Type.UPDATED, course, teacherUsername);
+    }
+
+    public static CourseChangedEvent deleted(Long courseId) {
+        return new CourseChangedEvent(Type.DELETED, courseId, null, null, null, null, null);
+    }
+
+    private static CourseChangedEvent of(Type type, Course course, String teacherUsername) {
+        Long teacherId = course.getTeacher() == null ? null : course.getTeacher().getId();
+        return new CourseChangedEvent(type, course.getId(), course.getTitle(), course.getDescription(),
+                course.getCreditHours(), teacherId, teacherUsername);
+    }
+}
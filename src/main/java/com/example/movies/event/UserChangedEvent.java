@@ -0,0 +1,24 @@
+package com.example.movies.event;
+
+/**
+ * Published after a user row is created, updated (username, password, roles)
+ * or deleted, so in-memory views of users can be kept in sync.
+ *
+ * @param previousUsername username before the change; equals {@code username} unless renamed
+ */
+public record UserChangedEvent(Type type, Long userId, String previousUsername, String username) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    public static UserChangedEvent created(Long userId, String username) {
+        return new UserChangedEvent(Type.CREATED, userId, username, username);
+    }
+
+    public static UserChangedEvent updated(Long userId, String previousUsername, String username) {
+        return new UserChangedEvent(Type.UPDATED, userId, previousUsername, username);
+    }
+
+    public static UserChangedEvent deleted(Long userId, String username) {
+        return new UserChangedEvent(Type.DELETED, userId, username, username);
+    }
+}
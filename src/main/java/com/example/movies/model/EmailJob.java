@@ -0,0 +1,137 @@
+package com.example.movies.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Bulk email send that runs in the background. Progress is checkpointed per
+ * chunk in {@link EmailJobRecipient}, so a restarted node resumes where the
+ * previous worker stopped.
+ */
+@Entity
+@Table(name = "email_jobs")
+public class EmailJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, CANCELLED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_jobs_seq")
+    @SequenceGenerator(name = "email_jobs_seq", sequenceName = "email_jobs_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String body;
+
+    @Column(nullable = false)
+    private boolean html;
+
+    // SHA-256 файла в AttachmentStore; одно вложение на всю рассылку
+    @Column(name = "attachment_hash", length = 64)
+    private String attachmentHash;
+
+    @Column(name = "attachment_name")
+    private String attachmentName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.QUEUED;
+
+    @Column(nullable = false)
+    private int total;
+
+    @Column(name = "sent_count", nullable = false)
+    private int sentCount;
+
+    @Column(name = "failed_count", nullable = false)
+    private int failedCount;
+
+    // Пока аренда не истекла, задачу ведёт один воркер; после — её может подхватить другой узел
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public EmailJob() {
+    }
+
+    public EmailJob(String subject, String body, boolean html) {
+        this.subject = subject;
+        this.body = body;
+        this.html = html;
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    public String getAttachmentHash() {
+        return attachmentHash;
+    }
+
+    public String getAttachmentName() {
+        return attachmentName;
+    }
+
+    public void setAttachment(String attachmentHash, String attachmentName) {
+        this.attachmentHash = attachmentHash;
+        this.attachmentName = attachmentName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getSentCount() {
+        return sentCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public Instant getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.movies.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "email_job_recipients")
+public class EmailJobRecipient {
+
+    public enum Status { PENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_job_recipients_seq")
+    @SequenceGenerator(name = "email_job_recipients_seq", sequenceName = "email_job_recipients_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(length = 1000)
+    private String error;
+
+    public EmailJobRecipient() {
+    }
+
+    public EmailJobRecipient(Long jobId, String email) {
+        this.jobId = jobId;
+        this.email = email;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
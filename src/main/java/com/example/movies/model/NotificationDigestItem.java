@@ -0,0 +1,62 @@
+package com.example.movies.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Enrollment notification waiting to be merged into a digest email. Rows are
+ * written in the enrollment transaction, so pending digests survive restarts.
+ */
+@Entity
+@Table(name = "notification_digest_items",
+        indexes = @Index(name = "idx_digest_items_recipient", columnList = "recipient"))
+public class NotificationDigestItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_digest_items_seq")
+    @SequenceGenerator(name = "notification_digest_items_seq", sequenceName = "notification_digest_items_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "course_title", nullable = false)
+    private String courseTitle;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public NotificationDigestItem() {
+    }
+
+    public NotificationDigestItem(String recipient, String username, String courseTitle) {
+        this.recipient = recipient;
+        this.username = username;
+        this.courseTitle = courseTitle;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getCourseTitle() {
+        return courseTitle;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
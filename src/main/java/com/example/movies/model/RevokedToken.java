@@ -0,0 +1,50 @@
+package com.example.movies.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "revoked_tokens_seq")
+    @SequenceGenerator(name = "revoked_tokens_seq", sequenceName = "revoked_tokens_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String jti;
+
+    // После этого момента токен истёк бы сам — запись можно удалять
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+
+    public RevokedToken() {
+    }
+
+    public RevokedToken(String jti, Instant expiresAt) {
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+        this.revokedAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Instant getRevokedAt() {
+        return revokedAt;
+    }
+}
@@ -12,7 +12,8 @@ import java.util.Set;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     @JsonView(JsonViews.Public.class)
     private Long id;
 
@@ -31,6 +32,11 @@ public class User {
             inverseJoinColumns = @JoinColumn(name = "role_id"))
     private Set<Role> roles = new HashSet<>();
 
+    // Увеличивается при смене пароля/ролей/имени — старые JWT с меньшей версией отклоняются
+    @JsonIgnore
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer not null default 0")
+    private int tokenVersion;
+
     @JsonIgnore // 👈 Скрываем курсы, в которых пользователь студент
     @ManyToMany(mappedBy = "students")
     private Set<Course> coursesEnrolled = new HashSet<>();
@@ -75,6 +81,14 @@ public class User {
         this.roles = roles;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     public Set<Course> getCoursesEnrolled() {
         return coursesEnrolled;
     }
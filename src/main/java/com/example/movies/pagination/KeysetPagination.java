@@ -0,0 +1,143 @@
+package com.example.movies.pagination;
+
+import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Keyset ("seek") pagination on top of the existing Specifications. Instead
+ * of {@code OFFSET n} the next page starts with
+ * {@code WHERE (sortKey, id) > (lastSortKey, lastId)}, so Postgres walks the
+ * index from the last row seen and a deep page costs the same as the first.
+ *
+ * <p>The cursor is opaque to clients: base64url of the sort column,
+ * direction, and the last row's sort value and id. Null sort values follow
+ * Postgres defaults (ASC NULLS LAST, DESC NULLS FIRST).
+ */
+public final class KeysetPagination {
+
+    private KeysetPagination() {
+    }
+
+    public record Cursor(String property, Sort.Direction direction, String value, long id) {
+
+        public String encode() {
+            String raw = direction + "\n" + property + "\n" + id + "\n" + (value == null ? "" : "=" + value);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** Empty token means "first page". */
+        public static Cursor decode(String token) {
+            if (token == null || token.isEmpty()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\n", 4);
+                String value = parts[3].isEmpty() ? null : parts[3].substring(1);
+                return new Cursor(parts[1], Sort.Direction.valueOf(parts[0]), value, Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Некорректный курсор", e);
+            }
+        }
+    }
+
+    public record Window<T>(List<T> content, String nextCursor) {
+
+        public boolean hasNext() {
+            return nextCursor != null;
+        }
+    }
+
+    /**
+     * Fetches {@code size} rows after {@code after} (or the first rows when it
+     * is null). One extra row is read to know whether a next page exists; no
+     * count query is issued.
+     */
+    public static <T> Window<T> fetch(JpaSpecificationExecutor<T> repository, Specification<T> filter,
+                                      Sort.Order order, String after, int size) {
+        if (size < 1) {
+            // как PageRequest.of на offset-пути — контроллеры отвечают 400
+            throw new IllegalArgumentException("size должен быть не меньше 1");
+        }
+        Cursor cursor = Cursor.decode(after);
+        if (cursor != null && (!cursor.property().equals(order.getProperty()) || cursor.direction() != order.getDirection())) {
+            throw new IllegalArgumentException("Курсор выдан для другой сортировки: " + cursor.property() + "," + cursor.direction());
+        }
+        Sort sort = order.getProperty().equals("id")
+                ? Sort.by(order)
+                : Sort.by(order, new Sort.Order(order.getDirection(), "id"));
+        Specification<T> spec = cursor == null ? filter : filter.and(seek(cursor));
+
+        List<T> rows;
+        try {
+            rows = repository.findBy(spec, query -> query.sortBy(sort).limit(size + 1).all());
+        } catch (InvalidDataAccessApiUsageException e) {
+            // ошибка из seek() приходит обёрнутой трансляцией исключений репозитория
+            if (e.getCause() instanceof IllegalArgumentException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        if (rows.size() <= size) {
+            return new Window<>(rows, null);
+        }
+        List<T> page = new ArrayList<>(rows.subList(0, size));
+        T last = page.get(size - 1);
+        var accessor = PropertyAccessorFactory.forDirectFieldAccess(last);
+        Object value = accessor.getPropertyValue(order.getProperty());
+        Long id = (Long) accessor.getPropertyValue("id");
+        return new Window<>(page, new Cursor(order.getProperty(), order.getDirection(),
+                value == null ? null : value.toString(), id).encode());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Specification<T> seek(Cursor cursor) {
+        return (root, query, cb) -> {
+            Attribute<? super T, ?> attribute = root.getModel().getAttribute(cursor.property());
+            if (!(attribute instanceof SingularAttribute<? super T, ?> singular)
+                    || attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC
+                    || !Comparable.class.isAssignableFrom(attribute.getJavaType())) {
+                throw new IllegalArgumentException("Сортировка по полю не поддерживается: " + cursor.property());
+            }
+            boolean asc = cursor.direction().isAscending();
+            Path<Long> id = root.get("id");
+            Predicate idAfter = asc ? cb.greaterThan(id, cursor.id()) : cb.lessThan(id, cursor.id());
+            if (cursor.property().equals("id")) {
+                return idAfter;
+            }
+
+            Path<Comparable> key = root.get(cursor.property());
+            if (cursor.value() == null) {
+                // ASC: null-строки в конце, дальше только они; DESC: null в начале, затем все непустые
+                Predicate inNulls = cb.and(cb.isNull(key), idAfter);
+                return asc ? inNulls : cb.or(inNulls, cb.isNotNull(key));
+            }
+            Comparable value = convert(cursor.value(), attribute.getJavaType());
+            // key >= v отдельным условием — по нему Postgres начинает сканирование индекса
+            Predicate from = asc ? cb.greaterThanOrEqualTo(key, value) : cb.lessThanOrEqualTo(key, value);
+            Predicate after = cb.or(asc ? cb.greaterThan(key, value) : cb.lessThan(key, value), idAfter);
+            Predicate seek = cb.and(from, after);
+            return asc && singular.isOptional() ? cb.or(seek, cb.isNull(key)) : seek;
+        };
+    }
+
+    private static Comparable<?> convert(String value, Class<?> type) {
+        if (type == LocalDate.class) {
+            return LocalDate.parse(value);
+        }
+        return (Comparable<?>) DefaultConversionService.getSharedInstance().convert(value, type);
+    }
+}
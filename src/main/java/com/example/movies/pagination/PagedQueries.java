@@ -0,0 +1,150 @@
+package com.example.movies.pagination;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Offset pagination for the paginated endpoints with a choice of how totals
+ * are produced ({@code totals=} request parameter):
+ * <ul>
+ *     <li>{@code exact} — {@link Page} with a {@code count(*)} per request (default, as before);</li>
+ *     <li>{@code none} — {@link Slice}: {@code size + 1} rows, no count, only {@code hasNext};</li>
+ *     <li>{@code cached} — slice plus an approximate total: the planner estimate
+ *     ({@code pg_class.reltuples}) when nothing is filtered, otherwise an exact count
+ *     cached for {@code pagination.totals.cache-ttl} per table and filter values.</li>
+ * </ul>
+ */
+@Component
+public class PagedQueries {
+
+    private static final Logger logger = LoggerFactory.getLogger(PagedQueries.class);
+
+    /** Request parameters that control paging and never take part in filtering. */
+    public static final Set<String> PAGING_PARAMS = Set.of("page", "size", "sort", "after", "totals");
+
+    public enum TotalsMode {
+        EXACT, NONE, CACHED;
+
+        public static TotalsMode of(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("totals должен быть exact, none или cached: " + value);
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, Long> counts;
+
+    public PagedQueries(JdbcTemplate jdbcTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${pagination.totals.cache-ttl:PT30S}") Duration cacheTtl,
+                        @Value("${pagination.totals.cache-max-size:10000}") long cacheMaxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, "pagination.totals");
+    }
+
+    /** Filter values from request parameters, without paging controls. */
+    public static Map<String, String> filters(Map<String, String> params) {
+        Map<String, String> filters = new TreeMap<>(params);
+        filters.keySet().removeAll(PAGING_PARAMS);
+        filters.values().removeIf(value -> value == null || value.isBlank());
+        return filters;
+    }
+
+    /**
+     * Runs the page query and builds the usual response map
+     * ({@code content}, {@code page}, {@code size}, {@code last}, plus totals
+     * depending on the mode).
+     *
+     * @param table   table behind the entity, for the planner estimate
+     * @param filters filter values that shaped {@code spec}; empty means unfiltered
+     */
+    public <T> Map<String, Object> fetch(JpaSpecificationExecutor<T> repository, Specification<T> spec,
+                                         String table, Map<String, ?> filters,
+                                         Pageable pageable, TotalsMode mode) {
+        Map<String, Object> response = new HashMap<>();
+        if (mode == TotalsMode.EXACT) {
+            Page<T> result = repository.findAll(spec, pageable);
+            response.put("content", result.getContent());
+            response.put("page", result.getNumber());
+            response.put("size", result.getSize());
+            response.put("totalElements", result.getTotalElements());
+            response.put("totalPages", result.getTotalPages());
+            response.put("last", result.isLast());
+            return response;
+        }
+
+        Slice<T> slice = slice(repository, spec, pageable);
+        response.put("content", slice.getContent());
+        response.put("page", slice.getNumber());
+        response.put("size", slice.getSize());
+        response.put("last", !slice.hasNext());
+        response.put("hasNext", slice.hasNext());
+        if (mode == TotalsMode.CACHED) {
+            long total = Math.max(approximateTotal(repository, spec, table, filters),
+                    pageable.getOffset() + slice.getNumberOfElements());
+            response.put("totalElements", total);
+            response.put("totalPages", (total + pageable.getPageSize() - 1) / pageable.getPageSize());
+            response.put("totalsApproximate", true);
+        }
+        return response;
+    }
+
+    /** {@code size + 1} rows from the offset; the extra row only tells whether a next page exists. */
+    public <T> Slice<T> slice(JpaSpecificationExecutor<T> repository, Specification<T> spec, Pageable pageable) {
+        // OffsetScrollPosition указывает на последний прочитанный элемент, чтение начинается со следующего
+        ScrollPosition position = pageable.getOffset() == 0
+                ? ScrollPosition.offset()
+                : ScrollPosition.offset(pageable.getOffset() - 1);
+        Window<T> window = repository.findBy(spec, query -> query
+                .sortBy(pageable.getSort())
+                .limit(pageable.getPageSize())
+                .scroll(position));
+        return new SliceImpl<>(window.getContent(), pageable, window.hasNext());
+    }
+
+    private <T> long approximateTotal(JpaSpecificationExecutor<T> repository, Specification<T> spec,
+                                      String table, Map<String, ?> filters) {
+        if (filters.isEmpty()) {
+            Long estimate = plannerEstimate(table);
+            if (estimate != null) {
+                return estimate;
+            }
+        }
+        String key = table + new TreeMap<>(filters);
+        return counts.get(key, k -> repository.count(spec));
+    }
+
+    // -1 (PG 14+) или 0 — таблица ещё не анализировалась, оценке верить нельзя
+    private Long plannerEstimate(String table) {
+        try {
+            Long estimate = jdbcTemplate.queryForObject(
+                    "select reltuples::bigint from pg_class where oid = to_regclass(?)", Long.class, table);
+            return estimate != null && estimate > 0 ? estimate : null;
+        } catch (DataAccessException e) {
+            logger.debug("No planner estimate for {}: {}", table, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package com.example.movies.repository;
 
+import com.example.movies.dto.CourseExportRow;
 import com.example.movies.model.Course;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
 import org.springframework.stereotype.Repository;
 
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long>, JpaSpecificationExecutor<Course> {
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.movies.dto.CourseExportRow(c.id, c.title, c.description, c.creditHours, t.id, t.username) " +
+            "from Course c left join c.teacher t order by c.id")
+    Stream<CourseExportRow> streamExportRows();
 }
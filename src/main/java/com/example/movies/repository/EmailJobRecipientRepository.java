@@ -0,0 +1,14 @@
+package com.example.movies.repository;
+
+import com.example.movies.model.EmailJobRecipient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface EmailJobRecipientRepository extends JpaRepository<EmailJobRecipient, Long> {
+
+    List<EmailJobRecipient> findByJobIdAndStatusOrderByIdAsc(Long jobId, EmailJobRecipient.Status status, Pageable pageable);
+
+    long countByJobIdAndStatus(Long jobId, EmailJobRecipient.Status status);
+}
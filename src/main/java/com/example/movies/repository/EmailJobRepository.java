@@ -0,0 +1,40 @@
+package com.example.movies.repository;
+
+import com.example.movies.model.EmailJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface EmailJobRepository extends JpaRepository<EmailJob, Long> {
+
+    // Задачи, которые можно (пере)захватить: новые или брошенные упавшим воркером
+    @Query("select j.id from EmailJob j where j.status = :queued or (j.status = :running and j.leaseUntil < :now)")
+    List<Long> findClaimable(EmailJob.Status queued, EmailJob.Status running, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailJob j set j.status = :running, j.leaseUntil = :leaseUntil, j.updatedAt = :now " +
+            "where j.id = :id and (j.status = :queued or (j.status = :running and j.leaseUntil < :now))")
+    int claim(Long id, EmailJob.Status queued, EmailJob.Status running, Instant now, Instant leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailJob j set j.sentCount = j.sentCount + :sent, j.failedCount = j.failedCount + :failed, " +
+            "j.leaseUntil = :leaseUntil, j.updatedAt = :now where j.id = :id")
+    void recordProgress(Long id, int sent, int failed, Instant now, Instant leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailJob j set j.status = :to, j.leaseUntil = null, j.updatedAt = :now " +
+            "where j.id = :id and j.status in :from")
+    int transition(Long id, Collection<EmailJob.Status> from, EmailJob.Status to, Instant now);
+
+    // Вложения незавершённых задач: их нельзя удалять по сроку хранения
+    @Query("select distinct j.attachmentHash from EmailJob j where j.attachmentHash is not null and j.status in :statuses")
+    List<String> findAttachmentHashes(Collection<EmailJob.Status> statuses);
+}
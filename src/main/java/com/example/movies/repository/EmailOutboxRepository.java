@@ -0,0 +1,26 @@
+package com.example.movies.repository;
+
+import com.example.movies.model.EmailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // SKIP LOCKED — несколько узлов разбирают очередь, не мешая друг другу
+    @Query(value = "select * from email_outbox where status = 'PENDING' and next_attempt_at <= :now " +
+            "order by id limit :limit for update skip locked", nativeQuery = true)
+    List<EmailOutboxMessage> lockDue(Instant now, int limit);
+
+    @Modifying
+    @Query("update EmailOutboxMessage m set m.nextAttemptAt = :leaseUntil where m.id in :ids")
+    void lease(List<Long> ids, Instant leaseUntil);
+
+    long countByStatus(EmailOutboxMessage.Status status);
+
+    @Query("select min(m.createdAt) from EmailOutboxMessage m where m.status = :status")
+    Instant findOldestCreatedAt(EmailOutboxMessage.Status status);
+}
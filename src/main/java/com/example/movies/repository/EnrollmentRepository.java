@@ -1,11 +1,26 @@
 package com.example.movies.repository;
 
+import com.example.movies.dto.EnrollmentExportRow;
 import com.example.movies.model.Enrollment;
 import com.example.movies.model.User;
 import com.example.movies.model.Course;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface EnrollmentRepository extends JpaRepository<Enrollment, Long>, JpaSpecificationExecutor<Enrollment> {
     boolean existsByStudentAndCourse(User student, Course course); // ✅ этот метод нужен
+
+    // Выгрузка: плоские строки курсором (fetch size), сущности не попадают в persistence context
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.movies.dto.EnrollmentExportRow(e.id, e.enrollmentDate, " +
+            "s.id, s.username, s.email, c.id, c.title) " +
+            "from Enrollment e join e.student s join e.course c order by e.id")
+    Stream<EnrollmentExportRow> streamExportRows();
 }
@@ -0,0 +1,25 @@
+package com.example.movies.repository;
+
+import com.example.movies.model.NotificationDigestItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface NotificationDigestItemRepository extends JpaRepository<NotificationDigestItem, Long> {
+
+    // Окно отсчитывается от первого уведомления получателя
+    @Query("select i.recipient from NotificationDigestItem i group by i.recipient having min(i.createdAt) <= :cutoff")
+    List<String> findDueRecipients(Instant cutoff);
+
+    // SKIP LOCKED — дайджест получателя собирает только один узел
+    @Query(value = "select * from notification_digest_items where recipient = :recipient " +
+            "order by id for update skip locked", nativeQuery = true)
+    List<NotificationDigestItem> lockByRecipient(String recipient);
+
+    @Modifying
+    @Query("delete from NotificationDigestItem i where i.id in :ids")
+    void deleteByIds(List<Long> ids);
+}
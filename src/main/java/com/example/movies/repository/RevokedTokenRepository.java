@@ -0,0 +1,29 @@
+package com.example.movies.repository;
+
+import com.example.movies.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    boolean existsByJti(String jti);
+
+    // Для опроса других узлов: отзывы, сделанные после since и ещё не истёкшие
+    List<RevokedToken> findByRevokedAtAfterAndExpiresAtAfter(Instant since, Instant now);
+
+    // Надгробия удалённых пользователей (jti = "user:<id>") и смены версий токенов ("user:<id>@<version>")
+    List<RevokedToken> findByJtiStartingWithAndExpiresAtAfter(String prefix, Instant now);
+
+    // Для опроса других узлов: записи по пользователям, сделанные после since
+    List<RevokedToken> findByJtiStartingWithAndRevokedAtAfter(String prefix, Instant since);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
@@ -1,9 +1,69 @@
 package com.example.movies.repository;
 
+import com.example.movies.dto.StudentSummary;
 import com.example.movies.model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.QueryHint;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
     User findByUsername(String username);
+
+    // [id, tokenVersion] только для пользователей, у которых версия уже менялась
+    @Query("select u.id, u.tokenVersion from User u where u.tokenVersion > 0")
+    List<Object[]> findBumpedTokenVersions();
+
+    // Замена хэша только если пароль не меняли с момента чтения oldHash; 0 — хэш уже другой
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :newHash where u.id = :id and u.password = :oldHash")
+    int replacePasswordHash(Long id, String oldHash, String newHash);
+
+    // Только имена, курсором с fetch size — без загрузки сущностей и ролей (нужна транзакция)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.username from User u")
+    Stream<String> streamAllUsernames();
+
+    // Адреса для рассылок: только email, курсором, без загрузки ролей каждого пользователя
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.email from User u where u.email is not null and trim(u.email) <> ''")
+    Stream<String> streamAllEmails();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.email from User u join u.roles r " +
+            "where upper(r.name) = upper(:roleName) and u.email is not null and trim(u.email) <> ''")
+    Stream<String> streamEmailsByRole(String roleName);
+
+    // Студенты одним join-запросом сразу в DTO: без сущностей, без догрузки ролей (N+1)
+    @Query(value = "select new com.example.movies.dto.StudentSummary(u.id, u.username, u.email) " +
+            "from User u join u.roles r where r.name = :roleName",
+            countQuery = "select count(u) from User u join u.roles r where r.name = :roleName")
+    Page<StudentSummary> findSummariesByRole(String roleName, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.movies.dto.StudentSummary(u.id, u.username, u.email) " +
+            "from User u join u.roles r where r.name = :roleName order by u.id")
+    Stream<StudentSummary> streamSummariesByRole(String roleName);
+
+    @Query("select new com.example.movies.dto.StudentSummary(u.id, u.username, u.email) " +
+            "from User u join u.roles r where r.name = :roleName and u.id in :ids")
+    List<StudentSummary> findSummariesByRoleAndIdIn(String roleName, Collection<Long> ids);
+
+    // Подсказки, пока индекс строится: префикс имени (idx_users_username_lower), только пользователи с ролью
+    @Query("select new com.example.movies.dto.StudentSummary(u.id, u.username, u.email) " +
+            "from User u join u.roles r where r.name = :roleName and lower(u.username) like :prefix " +
+            "order by u.username")
+    List<StudentSummary> findSummariesByRoleAndUsernameLike(String roleName, String prefix, Pageable pageable);
 }
@@ -1,7 +1,11 @@
 package com.example.movies.security;
 
 import com.example.movies.service.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -12,6 +16,8 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.security.core.userdetails.UserDetails;
 import jakarta.servlet.ServletException;
 import org.slf4j.Logger;
@@ -28,6 +34,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    // true — Authentication строится из claims без обращения к БД
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
     @Override
     protected void doFilterInternal(
             HttpServletRequest request,
@@ -43,19 +59,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateToken(jwt)) {
-                String username = jwtUtils.getUsernameFromToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(
-                        userDetails, 
-                        null,
-                        userDetails.getAuthorities()
-                    );
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            Claims claims = jwt != null ? jwtUtils.verifyToken(jwt) : null;
+            if (claims != null && !tokenRevocationList.isRevoked(claims.getId())) {
+
+                UserDetails userDetails = stateless && claims.containsKey(JwtUtils.CLAIM_ROLES)
+                        ? principalFromClaims(claims)
+                        : userDetailsService.loadUserByUsername(claims.getSubject());
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(
+                            userDetails,
+                            null,
+                            userDetails.getAuthorities()
+                        );
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception ex) {
             logger.error("JWT authentication error: {}", ex.getMessage(), ex);
@@ -63,6 +83,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // null, если версия токена устарела (пароль/роли/имя пользователя изменились после выдачи)
+    private UserPrincipal principalFromClaims(Claims claims) {
+        Long userId = claims.get(JwtUtils.CLAIM_USER_ID, Long.class);
+        Integer version = claims.get(JwtUtils.CLAIM_TOKEN_VERSION, Integer.class);
+        if (userId == null || version == null || !tokenVersionRegistry.isCurrent(userId, version)) {
+            logger.debug("Rejecting stale token for user {}", claims.getSubject());
+            return null;
+        }
+
+        List<?> roles = claims.get(JwtUtils.CLAIM_ROLES, List.class);
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (Object role : roles) {
+            authorities.add(new SimpleGrantedAuthority(String.valueOf(role)));
+        }
+        return new UserPrincipal(userId, claims.getSubject(), "", version, authorities);
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
         if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
@@ -1,51 +1,169 @@
 package com.example.movies.security;
 
+import com.example.movies.model.Role;
+import com.example.movies.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Component
 public class JwtUtils {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
-    public String generateToken(String username) {
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${jwt.cache.max-ttl:PT5M}")
+    private Duration cacheMaxTtl;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // SHA-256 токена -> уже проверенные claims; запись живёт не дольше exp токена
+    private Cache<ByteBuffer, Claims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new ClaimsExpiry(cacheMaxTtl.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+    }
+
+    public String generateToken(User user) {
+        List<String> roles = user.getRoles().stream()
+                .map(Role::getName)
+                .toList();
+        return generateToken(user.getId(), user.getUsername(), roles, user.getTokenVersion());
+    }
+
+    public String generateToken(UserPrincipal principal) {
+        List<String> roles = principal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+        return generateToken(principal.getId(), principal.getUsername(), roles, principal.getTokenVersion());
+    }
+
+    public String generateToken(Long userId, String username, List<String> roles, int tokenVersion) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_ROLES, roles)
+                .claim(CLAIM_TOKEN_VERSION, tokenVersion)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(io.jsonwebtoken.security.Keys.hmacShaKeyFor(jwtSecret.getBytes()), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry once and returns the claims, or null
+     * if the token is invalid. Recently verified tokens are served from the
+     * cache without recomputing the HMAC.
+     */
+    public Claims verifyToken(String token) {
+        ByteBuffer key = digest(token);
+        Claims claims = verifiedTokens.getIfPresent(key);
+        if (claims != null) {
+            return claims;
+        }
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException ex) {
+            return null;
+        }
+        verifiedTokens.put(key, claims);
+        return claims;
+    }
+
     public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                   .setSigningKey(jwtSecret.getBytes())
-                   .build()
-                   .parseClaimsJws(token)
-                   .getBody()
-                   .getSubject();
+        Claims claims = verifyToken(token);
+        return claims != null ? claims.getSubject() : null;
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                .setSigningKey(jwtSecret.getBytes())
-                .build()
-                .parseClaimsJws(token);
-            return true;
-        } catch (JwtException ex) {
-            // например, можно логировать ошибки
-            return false;
+        return verifyToken(token) != null;
+    }
+
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static final class ClaimsExpiry implements Expiry<ByteBuffer, Claims> {
+
+        private final long maxTtlNanos;
+
+        ClaimsExpiry(long maxTtlNanos) {
+            this.maxTtlNanos = maxTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return maxTtlNanos;
+            }
+            long remaining = Duration.ofMillis(expiration.getTime() - System.currentTimeMillis()).toNanos();
+            return Math.max(0, Math.min(remaining, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
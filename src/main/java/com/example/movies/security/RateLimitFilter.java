@@ -0,0 +1,136 @@
+package com.example.movies.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token-bucket throttling per route rule. Authenticated requests are limited
+ * per principal, anonymous ones per client IP. Runs right after
+ * {@link JwtAuthenticationFilter} so the principal is already known.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private List<RuleBuckets> rules;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        rules = properties.getRules().stream().map(RuleBuckets::new).toList();
+        rejected = Counter.builder("ratelimit.rejected").register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws IOException, ServletException {
+
+        RuleBuckets rule = properties.isEnabled() ? match(request.getRequestURI()) : null;
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket = rule.bucketFor(request, now);
+        long result = bucket.tryConsume(now);
+
+        response.setHeader("X-RateLimit-Limit", rule.limitHeader);
+        if (result >= 0) {
+            response.setHeader("X-RateLimit-Remaining", Long.toString(result));
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, (-result + 999_999_999L) / 1_000_000_000L);
+        rejected.increment();
+        logger.debug("Rate limit exceeded for {} on {}", request.getRemoteAddr(), request.getRequestURI());
+        response.setHeader("X-RateLimit-Remaining", "0");
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Слишком много запросов, повторите позже");
+    }
+
+    private RuleBuckets match(String uri) {
+        for (RuleBuckets rule : rules) {
+            if (PATH_MATCHER.match(rule.pattern, uri)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval:PT1M}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idleNanos = properties.getIdleTimeout().toNanos();
+        for (RuleBuckets rule : rules) {
+            rule.byPrincipal.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+            rule.byIp.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+        }
+    }
+
+    private static final class RuleBuckets {
+
+        final String pattern;
+        final int capacity;
+        final double refillPerSecond;
+        final String limitHeader;
+        // Отдельные карты, чтобы не склеивать ключи "user:"/"ip:" на каждом запросе
+        final ConcurrentHashMap<String, TokenBucket> byPrincipal = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, TokenBucket> byIp = new ConcurrentHashMap<>();
+
+        RuleBuckets(RateLimitProperties.Rule rule) {
+            this.pattern = rule.getPattern();
+            this.capacity = rule.getCapacity();
+            this.refillPerSecond = rule.getRefillPerSecond();
+            this.limitHeader = Integer.toString(capacity);
+        }
+
+        TokenBucket bucketFor(HttpServletRequest request, long now) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            boolean authenticated = auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken);
+            ConcurrentHashMap<String, TokenBucket> buckets = authenticated ? byPrincipal : byIp;
+            String key = authenticated ? auth.getName() : request.getRemoteAddr();
+
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, refillPerSecond, now));
+            }
+            return bucket;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.movies.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rate limit rules, matched in order against the request path (Ant patterns).
+ * Requests matching no rule are not limited.
+ */
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Бакет удаляется, если клиент не обращался столько времени (бакет к тому моменту уже полон)
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    private List<Rule> rules = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    public static class Rule {
+
+        private String pattern;
+        private int capacity;
+        private double refillPerSecond;
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public void setPattern(String pattern) {
+            this.pattern = pattern;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        // Проверка при биндинге: некорректное правило не даёт приложению стартовать
+        public void setCapacity(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity должен быть > 0: " + capacity);
+            }
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            if (!(refillPerSecond > 0)) {
+                throw new IllegalArgumentException("refill-per-second должен быть > 0: " + refillPerSecond);
+            }
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.movies.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in GCRA form: the whole state is one "theoretical
+ * arrival time" updated with CAS, so a check allocates nothing. Cost under
+ * contention is measured by TokenBucketBenchmarkTests.
+ */
+final class TokenBucket extends AtomicLong {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    TokenBucket(int capacity, double refillPerSecond, long now) {
+        super(now);
+        if (capacity <= 0 || !(refillPerSecond > 0)) {
+            throw new IllegalArgumentException("capacity и refillPerSecond должны быть > 0");
+        }
+        this.intervalNanos = (long) (1_000_000_000L / refillPerSecond);
+        this.burstNanos = intervalNanos * capacity;
+    }
+
+    /**
+     * Takes one token. Returns the tokens left (>= 0) on success, or the
+     * negated nanoseconds to wait until the next token on rejection.
+     */
+    long tryConsume(long now) {
+        while (true) {
+            long tat = get();
+            long newTat = Math.max(tat, now) + intervalNanos;
+            long debt = newTat - now;
+            if (debt > burstNanos) {
+                return -(debt - burstNanos);
+            }
+            if (compareAndSet(tat, newTat)) {
+                return (burstNanos - debt) / intervalNanos;
+            }
+        }
+    }
+
+    /** True when the bucket has been full for at least {@code idleNanos}. */
+    boolean isIdle(long now, long idleNanos) {
+        return now - get() > idleNanos;
+    }
+}
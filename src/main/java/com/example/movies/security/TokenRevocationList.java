@@ -0,0 +1,111 @@
+package com.example.movies.security;
+
+import com.example.movies.model.RevokedToken;
+import com.example.movies.repository.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Denylist of revoked token ids (jti). Revocations are persisted in
+ * {@code revoked_tokens} and mirrored in memory, so the per-request check is
+ * a single hash lookup. Other nodes pick up new rows by polling every
+ * {@code jwt.revocation.poll-interval}, which bounds the propagation delay as
+ * long as a scheduler thread is free: the poll shares the
+ * {@code spring.task.scheduling.pool.size} pool with the other periodic tasks,
+ * none of which may block it for long (the outbox drain runs on its own thread).
+ * Entries are grouped by expiry minute and dropped once the token would have
+ * expired anyway.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private static final long BUCKET_MILLIS = 60_000;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Duration pollOverlap;
+
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+    // минута истечения -> jti, истекающие в эту минуту
+    private final ConcurrentNavigableMap<Long, Set<String>> byExpiryBucket = new ConcurrentSkipListMap<>();
+
+    private volatile Instant lastPoll = Instant.EPOCH;
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository,
+                               @Value("${jwt.revocation.poll-overlap:PT30S}") Duration pollOverlap) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.pollOverlap = pollOverlap;
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.contains(jti);
+    }
+
+    public void revoke(String jti, Instant expiresAt) {
+        if (!revoked.contains(jti)) {
+            try {
+                revokedTokenRepository.save(new RevokedToken(jti, expiresAt));
+            } catch (DataIntegrityViolationException e) {
+                // уже отозван на другом узле
+            }
+        }
+        remember(jti, expiresAt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        poll();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.poll-interval:PT5S}")
+    public void poll() {
+        Instant now = Instant.now();
+        // Перекрытие окна — на случай транзакций, закоммиченных позже своего revokedAt
+        Instant since = lastPoll.equals(Instant.EPOCH) ? Instant.EPOCH : lastPoll.minus(pollOverlap);
+        List<RevokedToken> fresh = revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(since, now);
+        for (RevokedToken token : fresh) {
+            remember(token.getJti(), token.getExpiresAt());
+        }
+        lastPoll = now;
+        if (!fresh.isEmpty()) {
+            logger.debug("Revocation poll picked up {} entries", fresh.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.cleanup-interval:PT1M}")
+    public void purgeExpired() {
+        long currentBucket = System.currentTimeMillis() / BUCKET_MILLIS;
+        Map<Long, Set<String>> expired = byExpiryBucket.headMap(currentBucket);
+        for (Set<String> jtis : expired.values()) {
+            revoked.removeAll(jtis);
+        }
+        expired.clear();
+        int deleted = revokedTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.debug("Purged {} expired revocations", deleted);
+        }
+    }
+
+    private void remember(String jti, Instant expiresAt) {
+        if (revoked.add(jti)) {
+            long bucket = expiresAt.toEpochMilli() / BUCKET_MILLIS + 1;
+            byExpiryBucket.computeIfAbsent(bucket, b -> ConcurrentHashMap.newKeySet()).add(jti);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.movies.security;
+
+import com.example.movies.model.RevokedToken;
+import com.example.movies.repository.RevokedTokenRepository;
+import com.example.movies.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimum accepted token version per user. Tokens issued before a password,
+ * username or role change carry an older version and are rejected without
+ * a database lookup. Users whose version was never bumped are not stored.
+ *
+ * <p>Changes reach other nodes through {@code revoked_tokens}, the way jti
+ * revocations do: a bump writes {@code user:<id>@<version>} and a deleted
+ * user, who has no row left to carry the version, gets a tombstone
+ * {@code user:<id>}. Both live as long as the longest token. Every node polls
+ * them each {@code jwt.revocation.poll-interval}; {@link #load()} restores
+ * them after a restart. The rows join the caller's transaction and the
+ * in-memory entry is only updated once it commits.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenVersionRegistry.class);
+
+    private static final int REVOKED = Integer.MAX_VALUE;
+    private static final String USER_PREFIX = "user:";
+    private static final char VERSION_SEPARATOR = '@';
+
+    private final Map<Long, Integer> minVersions = new ConcurrentHashMap<>();
+
+    private final UserRepository userRepository;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long tokenLifetimeMillis;
+    private final Duration pollOverlap;
+
+    private volatile Instant lastPoll = Instant.EPOCH;
+
+    public TokenVersionRegistry(UserRepository userRepository,
+                                RevokedTokenRepository revokedTokenRepository,
+                                @Value("${jwt.expiration}") long tokenLifetimeMillis,
+                                @Value("${jwt.revocation.poll-overlap:PT30S}") Duration pollOverlap) {
+        this.userRepository = userRepository;
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.pollOverlap = pollOverlap;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Instant now = Instant.now();
+        List<Object[]> rows = userRepository.findBumpedTokenVersions();
+        for (Object[] row : rows) {
+            minVersions.merge((Long) row[0], (Integer) row[1], Math::max);
+        }
+        List<RevokedToken> changes = revokedTokenRepository.findByJtiStartingWithAndExpiresAtAfter(USER_PREFIX, now);
+        changes.forEach(this::apply);
+        lastPoll = now;
+        logger.info("Loaded {} bumped token versions, {} pending user revocations", rows.size(), changes.size());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.poll-interval:PT5S}")
+    public void poll() {
+        if (lastPoll.equals(Instant.EPOCH)) {
+            // ещё не загружен — load() прочитает всё сам
+            return;
+        }
+        Instant now = Instant.now();
+        // Перекрытие окна — на случай транзакций, закоммиченных позже своего revokedAt
+        List<RevokedToken> changes = revokedTokenRepository
+                .findByJtiStartingWithAndRevokedAtAfter(USER_PREFIX, lastPoll.minus(pollOverlap));
+        changes.forEach(this::apply);
+        lastPoll = now;
+        if (!changes.isEmpty()) {
+            logger.debug("Token version poll picked up {} entries", changes.size());
+        }
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        Integer min = minVersions.get(userId);
+        return min == null || tokenVersion >= min;
+    }
+
+    public void bump(Long userId, int newVersion) {
+        persist(USER_PREFIX + userId + VERSION_SEPARATOR + newVersion);
+        afterCommit(() -> minVersions.merge(userId, newVersion, Math::max));
+    }
+
+    /**
+     * Rejects every token of the user; call after the user row is deleted, in
+     * the same transaction, so a failed delete leaves the user's tokens valid.
+     */
+    public void revokeAll(Long userId) {
+        persist(USER_PREFIX + userId);
+        afterCommit(() -> minVersions.put(userId, REVOKED));
+    }
+
+    private void persist(String jti) {
+        // в транзакции нарушение уникальности сорвало бы и саму операцию — сначала проверяем
+        if (revokedTokenRepository.existsByJti(jti)) {
+            return;
+        }
+        try {
+            revokedTokenRepository.save(new RevokedToken(jti, Instant.now().plusMillis(tokenLifetimeMillis)));
+        } catch (DataIntegrityViolationException e) {
+            // запись уже сделал другой узел
+        }
+    }
+
+    private void apply(RevokedToken change) {
+        String key = change.getJti().substring(USER_PREFIX.length());
+        int separator = key.indexOf(VERSION_SEPARATOR);
+        if (separator < 0) {
+            minVersions.put(Long.valueOf(key), REVOKED);
+        } else {
+            minVersions.merge(Long.valueOf(key.substring(0, separator)),
+                    Integer.valueOf(key.substring(separator + 1)), Math::max);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
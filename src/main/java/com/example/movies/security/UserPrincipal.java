@@ -0,0 +1,36 @@
+package com.example.movies.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Authenticated principal that also carries the user id and token version,
+ * so it can be rebuilt from JWT claims without touching the database.
+ */
+public class UserPrincipal extends User {
+
+    private final Long id;
+    private final int tokenVersion;
+
+    public UserPrincipal(Long id, String username, String password, int tokenVersion,
+                         Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    // Экземпляры разделяются через кэш CustomUserDetailsService — не затираем хэш пароля
+    @Override
+    public void eraseCredentials() {
+    }
+}
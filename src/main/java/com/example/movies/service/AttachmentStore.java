@@ -0,0 +1,146 @@
+package com.example.movies.service;
+
+import com.example.movies.model.EmailJob;
+import com.example.movies.repository.EmailJobRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Content-addressed spool for email attachments. Each blob is written once
+ * under its SHA-256 and read back as a file-backed stream when the MIME
+ * message is written, so attachments never sit on the heap and a file sent
+ * to many recipients is stored only once.
+ */
+@Component
+public class AttachmentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentStore.class);
+
+    @Value("${email.attachments.dir:${java.io.tmpdir}/email-attachments}")
+    private Path directory;
+
+    @Value("${email.attachments.retention:P7D}")
+    private Duration retention;
+
+    @Autowired
+    private EmailJobRepository emailJobRepository;
+
+    public record StoredAttachment(String hash, Path path, long size) {
+
+        public FileSystemResource resource() {
+            return new FileSystemResource(path);
+        }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(directory);
+    }
+
+    public StoredAttachment store(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return store(in);
+        }
+    }
+
+    public StoredAttachment store(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file, StandardOpenOption.READ)) {
+            return store(in);
+        }
+    }
+
+    /** Streams the content to disk while hashing it; an existing blob with the same hash is reused. */
+    public StoredAttachment store(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(directory, "upload-", ".part");
+        try {
+            long size;
+            try (InputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = Files.newOutputStream(temp, StandardOpenOption.WRITE)) {
+                size = in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = directory.resolve(hash);
+            if (Files.exists(target)) {
+                // продлеваем срок хранения уже сохранённого файла
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            } else {
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // тот же файл параллельно сохранил другой запрос
+                }
+            }
+            return new StoredAttachment(hash, target, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public StoredAttachment find(String hash) throws NoSuchFileException {
+        if (!hash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Некорректный идентификатор вложения: " + hash);
+        }
+        Path path = directory.resolve(hash);
+        try {
+            return new StoredAttachment(hash, path, Files.size(path));
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Removes blobs that have not been stored or reused for {@code email.attachments.retention},
+     * except those still referenced by queued or running bulk jobs.
+     */
+    @Scheduled(fixedDelayString = "${email.attachments.purge-interval:PT1H}")
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        Set<String> inUse = new HashSet<>(emailJobRepository.findAttachmentHashes(
+                List.of(EmailJob.Status.QUEUED, EmailJob.Status.RUNNING)));
+        try (DirectoryStream<Path> blobs = Files.newDirectoryStream(directory, "[0-9a-f]*")) {
+            for (Path blob : blobs) {
+                if (inUse.contains(blob.getFileName().toString())) {
+                    // задача ещё рассылает этот файл — продлеваем, чтобы срок считался от последнего использования
+                    Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+                } else if (Files.getLastModifiedTime(blob).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(blob);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Attachment purge failed: {}", e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
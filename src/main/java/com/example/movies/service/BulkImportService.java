@@ -0,0 +1,377 @@
+package com.example.movies.service;
+
+import com.example.movies.event.CourseChangedEvent;
+import com.example.movies.event.UserChangedEvent;
+import com.example.movies.model.Role;
+import com.example.movies.repository.RoleRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CSV bulk import of students and courses. The upload is read as a stream
+ * and processed in chunks of {@code import.chunk-size} rows; each chunk is
+ * validated, de-duplicated against the database with one {@code IN} query,
+ * hashed in parallel and inserted with one multi-row statement in its own
+ * transaction. A bad row never fails the whole file: it is reported by line
+ * number and skipped.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+
+    private static final String STUDENT_ROLE = "ROLE_USER";
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final RoleRepository roleRepository;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final UsernameBloomFilter usernameBloomFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    // Отдельный пул: импорт не должен вытеснять хэширование при логине (PasswordHashingService)
+    private final ExecutorService hashers;
+    private final int hashThreads;
+
+    public record RowError(long line, String message) {
+    }
+
+    public record Report(long processed, long imported, long failed, List<RowError> errors) {
+    }
+
+    public BulkImportService(NamedParameterJdbcTemplate jdbc,
+                             PlatformTransactionManager transactionManager,
+                             RoleRepository roleRepository,
+                             BCryptPasswordEncoder passwordEncoder,
+                             UsernameBloomFilter usernameBloomFilter,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${import.chunk-size:1000}") int chunkSize,
+                             @Value("${import.hash-threads:0}") int hashThreads) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.roleRepository = roleRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.usernameBloomFilter = usernameBloomFilter;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.hashThreads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.hashers = Executors.newFixedThreadPool(this.hashThreads, r -> {
+            Thread t = new Thread(r, "import-hash-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private record StudentRow(long line, String username, String password, String email) {
+    }
+
+    private record CourseRow(long line, String title, String description, Integer creditHours, String teacher) {
+    }
+
+    /** Columns: {@code username,password,email} (header row required, order free). */
+    public Report importStudents(InputStream csv) throws IOException {
+        Long roleId = studentRoleId();
+        Accumulator report = new Accumulator();
+        try (CsvReader reader = new CsvReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = header(reader, "username", "password", "email");
+            List<StudentRow> chunk = new ArrayList<>(chunkSize);
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                if (isBlank(record)) {
+                    continue;
+                }
+                report.processed++;
+                StudentRow row = new StudentRow(reader.line(),
+                        field(record, header, "username"), field(record, header, "password"), field(record, header, "email"));
+                if (row.username().isEmpty() || row.password().isEmpty() || row.email().isEmpty()) {
+                    report.error(row.line(), "username, password и email обязательны");
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    importStudentChunk(chunk, roleId, report);
+                    chunk.clear();
+                }
+            }
+            importStudentChunk(chunk, roleId, report);
+        }
+        logger.info("Student import: {} rows, {} imported, {} failed", report.processed, report.imported, report.failed);
+        return report.toReport();
+    }
+
+    /** Columns: {@code title,description,creditHours,teacherUsername}; only title is required. */
+    public Report importCourses(InputStream csv) throws IOException {
+        Accumulator report = new Accumulator();
+        try (CsvReader reader = new CsvReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = header(reader, "title");
+            List<CourseRow> chunk = new ArrayList<>(chunkSize);
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                if (isBlank(record)) {
+                    continue;
+                }
+                report.processed++;
+                String title = field(record, header, "title");
+                if (title.isEmpty()) {
+                    report.error(reader.line(), "title обязателен");
+                    continue;
+                }
+                String hours = field(record, header, "creditHours");
+                Integer creditHours = null;
+                if (!hours.isEmpty()) {
+                    try {
+                        creditHours = Integer.parseInt(hours);
+                    } catch (NumberFormatException e) {
+                        report.error(reader.line(), "creditHours должно быть числом: " + hours);
+                        continue;
+                    }
+                }
+                String teacher = field(record, header, "teacherUsername");
+                chunk.add(new CourseRow(reader.line(), title, emptyToNull(field(record, header, "description")),
+                        creditHours, emptyToNull(teacher)));
+                if (chunk.size() == chunkSize) {
+                    importCourseChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            importCourseChunk(chunk, report);
+        }
+        logger.info("Course import: {} rows, {} imported, {} failed", report.processed, report.imported, report.failed);
+        return report.toReport();
+    }
+
+    private void importStudentChunk(List<StudentRow> chunk, Long roleId, Accumulator report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // Дубликаты внутри файла
+        Set<String> seenNames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+        List<StudentRow> unique = new ArrayList<>(chunk.size());
+        for (StudentRow row : chunk) {
+            if (!seenNames.add(row.username())) {
+                report.error(row.line(), "Повтор имени в файле: " + row.username());
+            } else if (!seenEmails.add(row.email().toLowerCase(Locale.ROOT))) {
+                report.error(row.line(), "Повтор email в файле: " + row.email());
+            } else {
+                unique.add(row);
+            }
+        }
+
+        // Уже существующие — одним запросом на порцию; Bloom-фильтр отсекает заведомо новые имена
+        List<String> candidates = unique.stream().map(StudentRow::username).filter(usernameBloomFilter::mightContain).toList();
+        Set<String> takenNames = candidates.isEmpty() ? Set.of() : new HashSet<>(jdbc.queryForList(
+                "select username from users where username in (:names)", Map.of("names", candidates), String.class));
+        Set<String> takenEmails = new HashSet<>(jdbc.queryForList(
+                "select lower(email) from users where lower(email) in (:emails)",
+                Map.of("emails", unique.stream().map(r -> r.email().toLowerCase(Locale.ROOT)).toList()), String.class));
+        List<StudentRow> fresh = new ArrayList<>(unique.size());
+        for (StudentRow row : unique) {
+            if (takenNames.contains(row.username())) {
+                report.error(row.line(), "Пользователь с таким именем уже существует: " + row.username());
+            } else if (takenEmails.contains(row.email().toLowerCase(Locale.ROOT))) {
+                report.error(row.line(), "Email уже используется: " + row.email());
+            } else {
+                fresh.add(row);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        List<String> hashes = hashAll(fresh);
+
+        // Одна вставка на порцию; ON CONFLICT отсекает имена/адреса, занятые параллельно
+        StringBuilder sql = new StringBuilder("insert into users (username, password, email, token_version) values ");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < fresh.size(); i++) {
+            StudentRow row = fresh.get(i);
+            sql.append(i == 0 ? "" : ", ").append("(:u").append(i).append(", :p").append(i).append(", :e").append(i).append(", 0)");
+            params.addValue("u" + i, row.username());
+            params.addValue("p" + i, hashes.get(i));
+            params.addValue("e" + i, row.email());
+        }
+        sql.append(" on conflict do nothing returning id, username");
+
+        Map<String, Long> inserted = tx.execute(status -> {
+            Map<String, Long> ids = new HashMap<>();
+            jdbc.query(sql.toString(), params, rs -> {
+                ids.put(rs.getString("username"), rs.getLong("id"));
+            });
+            if (!ids.isEmpty()) {
+                jdbc.batchUpdate("insert into users_roles (user_id, role_id) values (:userId, :roleId)",
+                        ids.values().stream()
+                                .map(id -> new MapSqlParameterSource("userId", id).addValue("roleId", roleId))
+                                .toArray(MapSqlParameterSource[]::new));
+            }
+            return ids;
+        });
+
+        for (StudentRow row : fresh) {
+            Long id = inserted.get(row.username());
+            if (id == null) {
+                report.error(row.line(), "Пользователь уже существует: " + row.username());
+            } else {
+                report.imported++;
+                eventPublisher.publishEvent(UserChangedEvent.created(id, row.username()));
+            }
+        }
+    }
+
+    private void importCourseChunk(List<CourseRow> chunk, Accumulator report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<String> teacherNames = chunk.stream().map(CourseRow::teacher).filter(Objects::nonNull).distinct().toList();
+        Map<String, Long> teachers = new HashMap<>();
+        if (!teacherNames.isEmpty()) {
+            jdbc.query("select id, username from users where username in (:names)", Map.of("names", teacherNames),
+                    rs -> {
+                        teachers.put(rs.getString("username"), rs.getLong("id"));
+                    });
+        }
+        List<CourseRow> valid = new ArrayList<>(chunk.size());
+        for (CourseRow row : chunk) {
+            if (row.teacher() != null && !teachers.containsKey(row.teacher())) {
+                report.error(row.line(), "Преподаватель не найден: " + row.teacher());
+            } else {
+                valid.add(row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] batch = valid.stream()
+                .map(row -> new MapSqlParameterSource()
+                        .addValue("title", row.title())
+                        .addValue("description", row.description())
+                        .addValue("creditHours", row.creditHours())
+                        .addValue("teacherId", row.teacher() == null ? null : teachers.get(row.teacher())))
+                .toArray(MapSqlParameterSource[]::new);
+        KeyHolder keys = new GeneratedKeyHolder();
+        tx.executeWithoutResult(status -> jdbc.batchUpdate(
+                "insert into courses (title, description, credit_hours, teacher_id) " +
+                        "values (:title, :description, :creditHours, :teacherId)", batch, keys, new String[]{"id"}));
+        report.imported += valid.size();
+        List<Map<String, Object>> ids = keys.getKeyList();
+        for (int i = 0; i < valid.size() && i < ids.size(); i++) {
+            CourseRow row = valid.get(i);
+            eventPublisher.publishEvent(CourseChangedEvent.created(((Number) ids.get(i).get("id")).longValue(),
+                    row.title(), row.description(), row.creditHours(),
+                    row.teacher() == null ? null : teachers.get(row.teacher()), row.teacher()));
+        }
+    }
+
+    // BCrypt на всех ядрах; порядок результатов совпадает с порядком строк
+    private List<String> hashAll(List<StudentRow> rows) {
+        int slices = Math.min(hashThreads, rows.size());
+        int per = (rows.size() + slices - 1) / slices;
+        String[] hashes = new String[rows.size()];
+        List<Future<?>> futures = new ArrayList<>(slices);
+        for (int from = 0; from < rows.size(); from += per) {
+            int start = from;
+            int end = Math.min(rows.size(), from + per);
+            futures.add(hashers.submit(() -> {
+                for (int i = start; i < end; i++) {
+                    hashes[i] = passwordEncoder.encode(rows.get(i).password());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Импорт прерван", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ошибка хэширования пароля", e.getCause());
+            }
+        }
+        return Arrays.asList(hashes);
+    }
+
+    private Long studentRoleId() {
+        Role role = roleRepository.findByName(STUDENT_ROLE);
+        if (role == null) {
+            role = roleRepository.save(new Role(STUDENT_ROLE));
+        }
+        return role.getId();
+    }
+
+    private static Map<String, Integer> header(CsvReader reader, String... required) throws IOException {
+        List<String> names = reader.next();
+        if (names == null) {
+            throw new IllegalArgumentException("Пустой файл");
+        }
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : required) {
+            if (!header.containsKey(column.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("В заголовке нет колонки " + column);
+            }
+        }
+        return header;
+    }
+
+    private static String field(List<String> record, Map<String, Integer> header, String column) {
+        Integer index = header.get(column.toLowerCase(Locale.ROOT));
+        return index == null || index >= record.size() ? "" : record.get(index).trim();
+    }
+
+    private static boolean isBlank(List<String> record) {
+        return record.stream().allMatch(String::isBlank);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static final class Accumulator {
+        long processed;
+        long imported;
+        long failed;
+        final List<RowError> errors = new ArrayList<>();
+
+        void error(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+
+        Report toReport() {
+            return new Report(processed, imported, failed, errors);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashers.shutdownNow();
+    }
+}
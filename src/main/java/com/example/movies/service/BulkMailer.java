@@ -0,0 +1,217 @@
+package com.example.movies.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends one message to many recipients over a small pool of authenticated
+ * SMTP connections. Each worker keeps its {@link Transport} open and sends
+ * many messages through it (STARTTLS and AUTH happen once per connection,
+ * not once per message). The overall send rate is capped by
+ * {@code email.bulk.rate-per-second}. BulkMailerBenchmarkTests compares it
+ * with a connection-per-message loop.
+ */
+@Component
+public class BulkMailer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkMailer.class);
+
+    /** Per-recipient variable available to bulk bodies: {@code {{email}}}. */
+    public static final String RECIPIENT_VARIABLE = "email";
+
+    private final JavaMailSenderImpl mailSender;
+    private final SmtpCircuitBreaker circuitBreaker;
+    private final EmailTemplateEngine templateEngine;
+    private final int connections;
+    private final int messagesPerConnection;
+    private final long intervalNanos;
+    // Следующий свободный слот отправки (общий для всех соединений)
+    private final AtomicLong nextSendSlot = new AtomicLong(System.nanoTime());
+
+    public BulkMailer(JavaMailSender javaMailSender,
+                      SmtpCircuitBreaker circuitBreaker,
+                      EmailTemplateEngine templateEngine,
+                      @Value("${email.bulk.connections:4}") int connections,
+                      @Value("${email.bulk.messages-per-connection:100}") int messagesPerConnection,
+                      @Value("${email.bulk.rate-per-second:10}") double ratePerSecond) {
+        this.mailSender = (JavaMailSenderImpl) javaMailSender;
+        this.circuitBreaker = circuitBreaker;
+        this.templateEngine = templateEngine;
+        this.connections = connections;
+        this.messagesPerConnection = messagesPerConnection;
+        this.intervalNanos = ratePerSecond > 0 ? (long) (1_000_000_000L / ratePerSecond) : 0;
+    }
+
+    public record Result(String recipient, boolean sent, String error) {
+
+        static final String NOT_ATTEMPTED = "not attempted";
+
+        /** False when the recipient was skipped (worker stopped, SMTP circuit open) and can be retried as is. */
+        public boolean attempted() {
+            return sent || !NOT_ATTEMPTED.equals(error);
+        }
+    }
+
+    public record Report(int total, int sent, int failed, List<Result> results) {
+    }
+
+    public Report send(List<String> recipients, MessageSpec spec) {
+        // Тела всех писем порции рендерятся заранее одним буфером; воркеры только отправляют
+        List<String> bodies = templateEngine.renderAll(spec.body(),
+                recipients.stream().map(to -> Map.of(RECIPIENT_VARIABLE, to)).toList());
+        AtomicReferenceArray<Result> results = new AtomicReferenceArray<>(recipients.size());
+        AtomicInteger cursor = new AtomicInteger();
+        int workers = Math.max(1, Math.min(connections, recipients.size()));
+
+        // Платформенные потоки: Angus Mail читает сокет внутри synchronized, и виртуальный поток
+        // закрепляет носитель на всё время ожидания ответа SMTP — соединения шли бы по очереди
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers,
+                Thread.ofPlatform().name("bulk-mail-", 0).daemon().factory())) {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> runWorker(recipients, bodies, spec, cursor, results)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    logger.error("Bulk mail worker failed: {}", e.getMessage(), e);
+                }
+            }
+        }
+
+        List<Result> list = new ArrayList<>(recipients.size());
+        int sent = 0;
+        for (int i = 0; i < recipients.size(); i++) {
+            Result result = results.get(i);
+            if (result == null) {
+                result = new Result(recipients.get(i), false, Result.NOT_ATTEMPTED);
+            }
+            if (result.sent()) {
+                sent++;
+            }
+            list.add(result);
+        }
+        return new Report(list.size(), sent, list.size() - sent, list);
+    }
+
+    private void runWorker(List<String> recipients, List<String> bodies, MessageSpec spec,
+                           AtomicInteger cursor, AtomicReferenceArray<Result> results) {
+        Transport transport = null;
+        int sentOnConnection = 0;
+        try {
+            int index;
+            while ((index = cursor.getAndIncrement()) < recipients.size()) {
+                String to = recipients.get(index);
+                try {
+                    if (transport == null || !transport.isConnected() || sentOnConnection >= messagesPerConnection) {
+                        closeQuietly(transport);
+                        transport = connect();
+                        sentOnConnection = 0;
+                    }
+                    MimeMessage mimeMessage = build(to, bodies.get(index), spec);
+                    awaitSendSlot();
+                    Transport connection = transport;
+                    circuitBreaker.run(() -> connection.sendMessage(mimeMessage, mimeMessage.getAllRecipients()));
+                    sentOnConnection++;
+                    results.set(index, new Result(to, true, null));
+                } catch (SmtpCircuitBreaker.CircuitOpenException e) {
+                    // Сервер недоступен — оставшиеся адреса не трогаем, их отправят позже
+                    logger.warn("Bulk send stopped: {}", e.getMessage());
+                    return;
+                } catch (SendFailedException | AddressException e) {
+                    // Отклонён конкретный адрес — соединение остаётся рабочим
+                    logger.warn("Bulk send to {} rejected: {}", to, e.getMessage());
+                    results.set(index, new Result(to, false, e.getMessage()));
+                } catch (MessagingException | RuntimeException e) {
+                    logger.warn("Bulk send to {} failed: {}", to, e.getMessage());
+                    results.set(index, new Result(to, false, e.getMessage()));
+                    // Соединение могло оборваться — переподключимся на следующем письме
+                    closeQuietly(transport);
+                    transport = null;
+                }
+            }
+        } finally {
+            closeQuietly(transport);
+        }
+    }
+
+    private Transport connect() throws MessagingException {
+        String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        circuitBreaker.run(() -> transport.connect(mailSender.getHost(), mailSender.getPort(),
+                mailSender.getUsername(), mailSender.getPassword()));
+        return transport;
+    }
+
+    private MimeMessage build(String to, String body, MessageSpec spec) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        boolean html = spec.body().isHtml();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, html || spec.attachment() != null);
+        helper.setTo(to);
+        helper.setSubject(spec.subject());
+        helper.setText(body, html);
+        if (spec.attachment() != null) {
+            // Каждое письмо читает один и тот же файл из хранилища в момент записи в сокет
+            helper.addAttachment(spec.attachmentName(), spec.attachment().resource());
+        }
+        mimeMessage.saveChanges();
+        return mimeMessage;
+    }
+
+    private void awaitSendSlot() {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long slot = nextSendSlot.getAndAccumulate(now, (next, current) -> Math.max(next, current) + intervalNanos);
+        long wait = Math.max(slot, now) - now;
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private static void closeQuietly(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                // соединение уже разорвано
+            }
+        }
+    }
+
+    /**
+     * Content shared by every message of a bulk send; the body is compiled once
+     * and rendered for all recipients of a send in one batch. The optional attachment is a stored blob that
+     * every message streams from disk instead of holding its own copy.
+     */
+    public record MessageSpec(String subject, EmailTemplate body,
+                              String attachmentName, AttachmentStore.StoredAttachment attachment) {
+
+        public MessageSpec(String subject, EmailTemplate body) {
+            this(subject, body, null, null);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.movies.service;
+
+import com.example.movies.event.CourseChangedEvent;
+import com.example.movies.event.UserChangedEvent;
+import com.example.movies.model.Course;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for the course catalog: single courses by id, the full
+ * list and paginated responses. Caffeine bounds each cache by size
+ * (W-TinyLFU eviction) and by {@code courses.cache.ttl}; statistics are
+ * published as {@code courses.catalog.*} cache metrics.
+ *
+ * <p>Invalidation follows {@link CourseChangedEvent}: the changed course is
+ * evicted by id and the list caches move to a new generation, so a list
+ * loaded concurrently with the write can never be served afterwards. Teacher
+ * renames and deletions ({@link UserChangedEvent}) evict the courses of that
+ * teacher, because cached courses embed the teacher's username.
+ * CourseCatalogCacheLoadBenchmarkTests measures the drop in DB queries.
+ */
+@Component
+public class CourseCatalogCache {
+
+    private final Cache<Long, Course> byId;
+    // ключи списков начинаются с поколения: запись после инвалидации становится недостижимой
+    private final Cache<String, Object> lists;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CourseCatalogCache(MeterRegistry meterRegistry,
+                              @Value("${courses.cache.ttl:PT5M}") Duration ttl,
+                              @Value("${courses.cache.max-size:10000}") long maxSize,
+                              @Value("${courses.cache.pages-max-size:1000}") long pagesMaxSize) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.lists = Caffeine.newBuilder()
+                .maximumSize(pagesMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "courses.catalog.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, lists, "courses.catalog.lists");
+    }
+
+    /** Missing courses are not cached, so a course created later is found at once. */
+    public Optional<Course> findById(Long id, Function<Long, Optional<Course>> loader) {
+        return Optional.ofNullable(byId.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Course> findAll(Supplier<List<Course>> loader) {
+        return (List<Course>) lists.get(generation.get() + ":all", key -> List.copyOf(loader.get()));
+    }
+
+    /** A paginated response; {@code key} must cover every parameter that shapes it. */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> page(String key, Supplier<Map<String, Object>> loader) {
+        return (Map<String, Object>) lists.get(generation.get() + ":page:" + key,
+                k -> Collections.unmodifiableMap(loader.get()));
+    }
+
+    @EventListener
+    public void onCourseChanged(CourseChangedEvent event) {
+        // новый курс ещё не мог попасть в byId, но сдвигает списки и страницы
+        if (event.type() != CourseChangedEvent.Type.CREATED) {
+            byId.invalidate(event.courseId());
+        }
+        invalidateLists();
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        boolean renamed = event.type() == UserChangedEvent.Type.UPDATED
+                && !Objects.equals(event.previousUsername(), event.username());
+        if (!renamed && event.type() != UserChangedEvent.Type.DELETED) {
+            return;
+        }
+        List<Long> taught = byId.asMap().values().stream()
+                .filter(course -> course.getTeacher() != null && event.userId().equals(course.getTeacher().getId()))
+                .map(Course::getId)
+                .toList();
+        byId.invalidateAll(taught);
+        invalidateLists();
+    }
+
+    private void invalidateLists() {
+        generation.incrementAndGet();
+        lists.invalidateAll();
+    }
+}
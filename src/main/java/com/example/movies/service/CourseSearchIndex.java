@@ -0,0 +1,364 @@
+package com.example.movies.service;
+
+import com.example.movies.dto.CourseExportRow;
+import com.example.movies.dto.CourseSearchHit;
+import com.example.movies.event.CourseChangedEvent;
+import com.example.movies.event.UserChangedEvent;
+import com.example.movies.repository.CourseRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over course titles, descriptions and teacher
+ * usernames for substring search. Every lowercased field is split into
+ * overlapping three-character grams; a query matches the courses whose
+ * posting lists contain all of its grams, and the candidates are confirmed
+ * with {@code indexOf} and ranked (title before teacher before description,
+ * prefix and word-start matches first). Every candidate is scored, so a
+ * common word that matches thousands of courses costs about a millisecond;
+ * CourseSearchBenchmarkTests compares it with the SQL LIKE path.
+ *
+ * <p>The index is built from a streaming scan after startup and then kept in
+ * sync from {@link CourseChangedEvent} and teacher renames
+ * ({@link UserChangedEvent}). Until the first build completes
+ * {@link #isReady()} is false and callers fall back to the database.
+ */
+@Component
+public class CourseSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseSearchIndex.class);
+
+    private static final int GRAM = 3;
+    private static final int BUILD_BATCH = 1000;
+    private static final Comparator<CourseSearchHit> BEST_FIRST = Comparator.comparingInt(CourseSearchHit::score).reversed()
+            .thenComparingInt(hit -> titleLength(hit.title()))
+            .thenComparing(CourseSearchHit::id);
+
+    private final CourseRepository courseRepository;
+    private final TransactionTemplate readOnlyTx;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // все поля ниже — под lock
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final Map<Long, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, Set<Long>> coursesByTeacher = new HashMap<>();
+    // курсы, изменённые событиями во время начального построения: строки скана для них устарели
+    private Set<Long> touchedDuringBuild;
+
+    private volatile boolean ready;
+
+    public CourseSearchIndex(CourseRepository courseRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.courseRepository = courseRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        Gauge.builder("courses.search.index.courses", this, CourseSearchIndex::size).register(meterRegistry);
+        Gauge.builder("courses.search.index.grams", this, CourseSearchIndex::gramCount).register(meterRegistry);
+    }
+
+    private record Doc(Long id, String title, String description, Integer creditHours,
+                       Long teacherId, String teacherUsername,
+                       String titleKey, String descriptionKey, String teacherKey) {
+
+        static Doc of(Long id, String title, String description, Integer creditHours,
+                      Long teacherId, String teacherUsername) {
+            return new Doc(id, title, description, creditHours, teacherId, teacherUsername,
+                    normalize(title), normalize(description), normalize(teacherUsername));
+        }
+
+        Doc withTeacher(Long teacherId, String teacherUsername) {
+            return of(id, title, description, creditHours, teacherId, teacherUsername);
+        }
+
+        Set<Long> grams() {
+            Set<Long> grams = new HashSet<>();
+            addGrams(titleKey, grams);
+            addGrams(descriptionKey, grams);
+            addGrams(teacherKey, grams);
+            return grams;
+        }
+
+        CourseSearchHit toHit(int score) {
+            return new CourseSearchHit(id, title, description, creditHours, teacherId, teacherUsername, score);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        Thread.ofVirtual().name("course-search-index-build").start(() -> {
+            try {
+                build();
+            } catch (Exception e) {
+                logger.error("Course search index build failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Courses whose title, description or teacher username contains
+     * {@code query} (case-insensitive), best matches first.
+     */
+    public List<CourseSearchHit> search(String query, int limit) {
+        String key = normalize(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // Частое слово совпадает с тысячами курсов: держим только limit лучших, худший — в голове кучи
+        PriorityQueue<CourseSearchHit> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+        lock.readLock().lock();
+        try {
+            for (Doc doc : candidates(key)) {
+                int score = score(doc, key);
+                if (score > 0 && (top.size() < limit || isBetter(score, doc, top.peek()))) {
+                    top.add(doc.toHit(score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<CourseSearchHit> hits = new ArrayList<>(top);
+        hits.sort(BEST_FIRST);
+        return hits;
+    }
+
+    private static int titleLength(String title) {
+        return title == null ? Integer.MAX_VALUE : title.length();
+    }
+
+    // То же сравнение, что BEST_FIRST, но без создания hit для отсеиваемых курсов
+    private static boolean isBetter(int score, Doc doc, CourseSearchHit worst) {
+        if (score != worst.score()) {
+            return score > worst.score();
+        }
+        int length = titleLength(doc.title());
+        int worstLength = titleLength(worst.title());
+        if (length != worstLength) {
+            return length < worstLength;
+        }
+        return doc.id() < worst.id();
+    }
+
+    @EventListener
+    public void onCourseChanged(CourseChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringBuild != null) {
+                touchedDuringBuild.add(event.courseId());
+            }
+            switch (event.type()) {
+                case CREATED, UPDATED -> put(Doc.of(event.courseId(), event.title(), event.description(),
+                        event.creditHours(), event.teacherId(), event.teacherUsername()));
+                case DELETED -> remove(event.courseId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        boolean renamed = event.type() == UserChangedEvent.Type.UPDATED
+                && !Objects.equals(event.previousUsername(), event.username());
+        if (!renamed && event.type() != UserChangedEvent.Type.DELETED) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Set<Long> courses = coursesByTeacher.get(event.userId());
+            if (courses == null) {
+                return;
+            }
+            for (Long courseId : List.copyOf(courses)) {
+                Doc doc = docs.get(courseId);
+                put(renamed ? doc.withTeacher(event.userId(), event.username()) : doc.withTeacher(null, null));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void build() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            touchedDuringBuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Doc> batch = new ArrayList<>(BUILD_BATCH);
+        try {
+            readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<CourseExportRow> rows = courseRepository.streamExportRows()) {
+                    rows.forEach(row -> {
+                        batch.add(Doc.of(row.id(), row.title(), row.description(), row.creditHours(),
+                                row.teacherId(), row.teacherUsername()));
+                        if (batch.size() == BUILD_BATCH) {
+                            putScanned(batch);
+                            batch.clear();
+                        }
+                    });
+                }
+            });
+            putScanned(batch);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                touchedDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+        logger.info("Course search index built: {} courses, {} grams, {} ms",
+                size(), gramCount(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Пачками, чтобы поиск и события не ждали весь скан
+    private void putScanned(List<Doc> batch) {
+        lock.writeLock().lock();
+        try {
+            for (Doc doc : batch) {
+                if (!touchedDuringBuild.contains(doc.id())) {
+                    put(doc);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Collection<Doc> candidates(String key) {
+        if (key.length() < GRAM) {
+            // короче триграммы — индекс не сужает выборку, проверяем все курсы
+            return docs.values();
+        }
+        Set<Long> grams = new HashSet<>();
+        addGrams(key, grams);
+        List<Set<Long>> lists = new ArrayList<>(grams.size());
+        for (Long gram : grams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<Doc> result = new ArrayList<>();
+        Set<Long> smallest = lists.get(0);
+        outer:
+        for (Long id : smallest) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    continue outer;
+                }
+            }
+            result.add(docs.get(id));
+        }
+        return result;
+    }
+
+    // Все граммы запроса могут найтись в разных полях — подстрока проверяется по каждому полю отдельно
+    private static int score(Doc doc, String key) {
+        int score = 0;
+        score += fieldScore(doc.titleKey(), key, 100);
+        score += fieldScore(doc.teacherKey(), key, 60);
+        score += fieldScore(doc.descriptionKey(), key, 20);
+        return score;
+    }
+
+    private static int fieldScore(String field, String key, int weight) {
+        int index = field.indexOf(key);
+        if (index < 0) {
+            return 0;
+        }
+        if (field.length() == key.length()) {
+            return weight * 2;
+        }
+        if (index == 0) {
+            return weight + weight / 2;
+        }
+        if (!Character.isLetterOrDigit(field.charAt(index - 1))) {
+            return weight + weight / 4;
+        }
+        return weight;
+    }
+
+    private void put(Doc doc) {
+        remove(doc.id());
+        docs.put(doc.id(), doc);
+        for (Long gram : doc.grams()) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(doc.id());
+        }
+        if (doc.teacherId() != null) {
+            coursesByTeacher.computeIfAbsent(doc.teacherId(), t -> new HashSet<>()).add(doc.id());
+        }
+    }
+
+    private void remove(Long id) {
+        Doc old = docs.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (Long gram : old.grams()) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+        if (old.teacherId() != null) {
+            Set<Long> courses = coursesByTeacher.get(old.teacherId());
+            if (courses != null && courses.remove(id) && courses.isEmpty()) {
+                coursesByTeacher.remove(old.teacherId());
+            }
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int gramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    // Три UTF-16 символа упаковываются в один long
+    private static void addGrams(String text, Set<Long> grams) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.movies.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: one record per {@link #next()} call,
+ * quoted fields may contain commas, quotes ({@code ""}) and line breaks.
+ */
+final class CsvReader implements AutoCloseable {
+
+    private final BufferedReader reader;
+    private long line;
+    private long recordLine;
+
+    CsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+    }
+
+    /** Line number (1-based) where the last returned record starts. */
+    long line() {
+        return recordLine;
+    }
+
+    /** Next record, or null at end of input. */
+    List<String> next() throws IOException {
+        String text = reader.readLine();
+        if (text == null) {
+            return null;
+        }
+        line++;
+        recordLine = line;
+        if (line == 1 && !text.isEmpty() && text.charAt(0) == '\uFEFF') {
+            text = text.substring(1); // BOM от Excel
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == text.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // перевод строки внутри кавычек
+                String continuation = reader.readLine();
+                if (continuation == null) {
+                    throw new IOException("Незакрытая кавычка в строке " + recordLine);
+                }
+                line++;
+                field.append('\n');
+                text = continuation;
+                i = 0;
+                continue;
+            }
+            char c = text.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < text.length() && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
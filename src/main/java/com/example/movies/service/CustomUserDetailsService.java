@@ -1,12 +1,22 @@
 package com.example.movies.service;
 
+import com.example.movies.event.UserChangedEvent;
 import com.example.movies.model.User;
 import com.example.movies.repository.UserRepository;
+import com.example.movies.security.UserPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.stream.Collectors;
 
 @Service
@@ -15,20 +25,67 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.user-cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    // Страховка на случай изменений в обход UserChangedEvent (например, из другого узла)
+    @Value("${security.user-cache.ttl:PT10M}")
+    private Duration cacheTtl;
+
+    private Cache<String, UserPrincipal> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.details");
+    }
+
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    public UserPrincipal loadUserByUsername(String username) throws UsernameNotFoundException {
+        // Загрузка идёт внутри cache.get: invalidate() из evict ждёт её окончания и удаляет результат,
+        // поэтому хэш, прочитанный до смены пароля, не переживёт событие
+        UserPrincipal principal = cache.get(username, this::load);
+        if (principal == null) {
+            throw new UsernameNotFoundException("пользователь не найден");
+        }
+        return principal;
+    }
+
+    // null — пользователя нет, Caffeine такое не кэширует
+    private UserPrincipal load(String username) {
         User userEntity = userRepository.findByUsername(username);
         if (userEntity == null) {
-            throw new UsernameNotFoundException("пользователь не найден");
+            return null;
         }
 
         // Конвертируем роли в GrantedAuthority
-        return new org.springframework.security.core.userdetails.User(
+        return new UserPrincipal(
+                userEntity.getId(),
                 userEntity.getUsername(),
                 userEntity.getPassword(),
+                userEntity.getTokenVersion(),
                 userEntity.getRoles().stream()
                         .map(role -> new SimpleGrantedAuthority(role.getName()))
                         .collect(Collectors.toList())
         );
     }
+
+    public void evict(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        evict(event.previousUsername());
+        evict(event.username());
+    }
 }
@@ -0,0 +1,244 @@
+package com.example.movies.service;
+
+import com.example.movies.model.EmailJob;
+import com.example.movies.model.EmailJobRecipient;
+import com.example.movies.repository.EmailJobRecipientRepository;
+import com.example.movies.repository.EmailJobRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Persisted bulk-email jobs. Recipients are stored up front; a worker sends
+ * them chunk by chunk and checkpoints each chunk's results before moving on,
+ * so after a crash at most one chunk is attempted again. Jobs are held by a
+ * lease that the worker renews per chunk; an expired lease lets any node
+ * resume the job.
+ */
+@Service
+public class EmailJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailJobService.class);
+
+    private static final int INSERT_CHUNK = 500;
+
+    @Autowired
+    private EmailJobRepository emailJobRepository;
+
+    @Autowired
+    private EmailJobRecipientRepository recipientRepository;
+
+    @Autowired
+    private BulkMailer bulkMailer;
+
+    @Autowired
+    private EmailTemplateEngine emailTemplateEngine;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Autowired
+    private SmtpCircuitBreaker circuitBreaker;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate tx;
+    private final ExecutorService workers;
+
+    @Value("${email.jobs.chunk-size:50}")
+    private int chunkSize;
+
+    @Value("${email.jobs.lease:PT2M}")
+    private Duration lease;
+
+    public EmailJobService(PlatformTransactionManager transactionManager,
+                           @Value("${email.jobs.max-concurrent:2}") int maxConcurrent) {
+        this.tx = new TransactionTemplate(transactionManager);
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread t = new Thread(r, "email-job-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Stores the job with all of its recipients and schedules it. The stream
+     * is opened and consumed inside the insert transaction and flushed in
+     * chunks, so it may be backed by a database cursor. Returns empty (and
+     * stores nothing) when the stream has no recipients.
+     */
+    public Optional<EmailJob> createJob(String subject, String body, Supplier<Stream<String>> recipients) {
+        return createJob(subject, body, null, null, recipients);
+    }
+
+    /** Same as above, with one stored attachment that every recipient receives. */
+    public Optional<EmailJob> createJob(String subject, String body, String attachmentName,
+                                        AttachmentStore.StoredAttachment attachment,
+                                        Supplier<Stream<String>> recipients) {
+        EmailJob job = tx.execute(status -> {
+            EmailJob draft = new EmailJob(subject, body, false);
+            if (attachment != null) {
+                draft.setAttachment(attachment.hash(), attachmentName);
+            }
+            EmailJob created = emailJobRepository.save(draft);
+            Long jobId = created.getId();
+            List<EmailJobRecipient> chunk = new ArrayList<>(INSERT_CHUNK);
+            int[] total = {0};
+            try (Stream<String> emails = recipients.get()) {
+                emails.forEach(email -> {
+                    chunk.add(new EmailJobRecipient(jobId, email));
+                    total[0]++;
+                    if (chunk.size() == INSERT_CHUNK) {
+                        flushRecipients(chunk);
+                    }
+                });
+            }
+            if (total[0] == 0) {
+                status.setRollbackOnly();
+                return null;
+            }
+            flushRecipients(chunk);
+            EmailJob managed = emailJobRepository.findById(jobId).orElseThrow();
+            managed.setTotal(total[0]);
+            return managed;
+        });
+        if (job == null) {
+            return Optional.empty();
+        }
+        logger.info("Email job {} created for {} recipients", job.getId(), job.getTotal());
+        workers.execute(() -> run(job.getId()));
+        return Optional.of(job);
+    }
+
+    public Optional<EmailJob> find(Long id) {
+        return emailJobRepository.findById(id);
+    }
+
+    public boolean cancel(Long id) {
+        return emailJobRepository.transition(id, List.of(EmailJob.Status.QUEUED, EmailJob.Status.RUNNING),
+                EmailJob.Status.CANCELLED, Instant.now()) > 0;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        resumeAbandoned();
+    }
+
+    @Scheduled(fixedDelayString = "${email.jobs.recovery-interval:PT1M}")
+    public void resumeAbandoned() {
+        List<Long> claimable = emailJobRepository.findClaimable(EmailJob.Status.QUEUED, EmailJob.Status.RUNNING, Instant.now());
+        for (Long id : claimable) {
+            logger.info("Resuming email job {}", id);
+            workers.execute(() -> run(id));
+        }
+    }
+
+    private void run(Long jobId) {
+        try {
+            Instant now = Instant.now();
+            if (emailJobRepository.claim(jobId, EmailJob.Status.QUEUED, EmailJob.Status.RUNNING, now, now.plus(lease)) == 0) {
+                return; // уже выполняется другим воркером, отменена или завершена
+            }
+            EmailJob job = emailJobRepository.findById(jobId).orElseThrow();
+            AttachmentStore.StoredAttachment attachment = null;
+            if (job.getAttachmentHash() != null) {
+                try {
+                    attachment = attachmentStore.find(job.getAttachmentHash());
+                } catch (NoSuchFileException e) {
+                    // Без вложения рассылка бессмысленна; каталог хранилища должен быть общим для всех узлов
+                    logger.error("Email job {} cancelled: attachment {} is missing", jobId, job.getAttachmentHash());
+                    cancel(jobId);
+                    return;
+                }
+            }
+            BulkMailer.MessageSpec spec = new BulkMailer.MessageSpec(job.getSubject(),
+                    emailTemplateEngine.compile(job.getBody(), job.isHtml()), job.getAttachmentName(), attachment);
+
+            while (true) {
+                if (emailJobRepository.findById(jobId).map(j -> j.getStatus() != EmailJob.Status.RUNNING).orElse(true)) {
+                    logger.info("Email job {} stopped (cancelled)", jobId);
+                    return;
+                }
+                if (!circuitBreaker.allowsRequests()) {
+                    // Задача остаётся RUNNING; после истечения аренды её продолжит resumeAbandoned
+                    logger.warn("Email job {} paused: SMTP circuit is open", jobId);
+                    return;
+                }
+                List<EmailJobRecipient> chunk = recipientRepository.findByJobIdAndStatusOrderByIdAsc(
+                        jobId, EmailJobRecipient.Status.PENDING, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    emailJobRepository.transition(jobId, List.of(EmailJob.Status.RUNNING), EmailJob.Status.COMPLETED, Instant.now());
+                    logger.info("Email job {} completed", jobId);
+                    return;
+                }
+                checkpoint(jobId, chunk, bulkMailer.send(chunk.stream().map(EmailJobRecipient::getEmail).toList(), spec));
+            }
+        } catch (Exception e) {
+            // Аренда истечёт, и задачу подхватит resumeAbandoned
+            logger.error("Email job {} worker failed: {}", jobId, e.getMessage(), e);
+        }
+    }
+
+    private void checkpoint(Long jobId, List<EmailJobRecipient> chunk, BulkMailer.Report report) {
+        List<EmailJobRecipient> attempted = new ArrayList<>(chunk.size());
+        int failed = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            BulkMailer.Result result = report.results().get(i);
+            if (!result.attempted()) {
+                continue; // остаётся PENDING и уйдёт в следующей порции
+            }
+            EmailJobRecipient recipient = chunk.get(i);
+            recipient.setStatus(result.sent() ? EmailJobRecipient.Status.SENT : EmailJobRecipient.Status.FAILED);
+            String error = result.error();
+            recipient.setError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            attempted.add(recipient);
+            if (!result.sent()) {
+                failed++;
+            }
+        }
+        int failedCount = failed;
+        tx.executeWithoutResult(status -> {
+            recipientRepository.saveAll(attempted);
+            Instant now = Instant.now();
+            emailJobRepository.recordProgress(jobId, report.sent(), failedCount, now, now.plus(lease));
+        });
+    }
+
+    private void flushRecipients(List<EmailJobRecipient> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        recipientRepository.saveAll(chunk);
+        entityManager.flush();
+        entityManager.clear();
+        chunk.clear();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.movies.service;
+
+import com.example.movies.model.EmailOutboxMessage;
+import com.example.movies.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains {@code email_outbox}: claims due messages in batches, sends them on
+ * virtual threads and records the outcome. Failed messages are retried with
+ * exponential backoff and dead-lettered after {@code email.outbox.max-attempts}.
+ *
+ * <p>The scheduled tick only hands the drain to its own thread, so a large
+ * backlog or a slow SMTP server never holds the shared scheduler that runs
+ * the token revocation poll and the other periodic tasks.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final SmtpCircuitBreaker circuitBreaker;
+    private final TransactionTemplate tx;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService drainer =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("email-outbox-drain").factory());
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    // Ограничиваем параллельные SMTP-сессии, виртуальных потоков может быть сколько угодно
+    private final Semaphore concurrency;
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter dead;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public EmailOutboxDispatcher(EmailOutboxRepository emailOutboxRepository,
+                                 EmailService emailService,
+                                 SmtpCircuitBreaker circuitBreaker,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${email.outbox.batch-size:100}") int batchSize,
+                                 @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${email.outbox.max-concurrency:8}") int maxConcurrency,
+                                 @Value("${email.outbox.lease:PT5M}") Duration lease,
+                                 @Value("${email.outbox.base-backoff:PT30S}") Duration baseBackoff,
+                                 @Value("${email.outbox.max-backoff:PT1H}") Duration maxBackoff) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailService = emailService;
+        this.circuitBreaker = circuitBreaker;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.concurrency = new Semaphore(maxConcurrency);
+
+        this.sent = Counter.builder("email.outbox.sent").register(meterRegistry);
+        this.failed = Counter.builder("email.outbox.failed").register(meterRegistry);
+        this.dead = Counter.builder("email.outbox.dead").register(meterRegistry);
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("email.outbox.lag.seconds", lagSeconds, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:PT2S}")
+    public void drain() {
+        // Пока идёт прошлый проход, новый не запускаем: он и так заберёт всё накопившееся
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        drainer.execute(() -> {
+            try {
+                drainBacklog();
+            } catch (RuntimeException e) {
+                logger.error("Outbox drain failed: {}", e.getMessage(), e);
+            } finally {
+                draining.set(false);
+            }
+        });
+    }
+
+    private void drainBacklog() {
+        if (!circuitBreaker.allowsRequests()) {
+            // Сообщения остаются в очереди, попытки не расходуются
+            refreshGauges();
+            return;
+        }
+        List<EmailOutboxMessage> batch;
+        do {
+            batch = claimBatch();
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+            }
+        } while (batch.size() == batchSize);
+        refreshGauges();
+    }
+
+    /** Locks due rows and pushes their next attempt past the lease, so no other node picks them up. */
+    private List<EmailOutboxMessage> claimBatch() {
+        return tx.execute(status -> {
+            Instant now = Instant.now();
+            List<EmailOutboxMessage> due = emailOutboxRepository.lockDue(now, batchSize);
+            if (!due.isEmpty()) {
+                emailOutboxRepository.lease(due.stream().map(EmailOutboxMessage::getId).toList(), now.plus(lease));
+            }
+            return due;
+        });
+    }
+
+    private void dispatch(List<EmailOutboxMessage> batch) {
+        List<Future<?>> futures = new ArrayList<>(batch.size());
+        for (EmailOutboxMessage message : batch) {
+            futures.add(senders.submit(() -> deliver(message)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                logger.error("Outbox delivery task failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void deliver(EmailOutboxMessage message) {
+        try {
+            concurrency.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            if (message.isHtml()) {
+                emailService.sendHtmlEmail(message.getRecipient(), message.getSubject(), message.getBody());
+            } else {
+                emailService.sendSimpleEmail(message.getRecipient(), message.getSubject(), message.getBody());
+            }
+            message.setStatus(EmailOutboxMessage.Status.SENT);
+            message.setSentAt(Instant.now());
+            message.setLastError(null);
+            sent.increment();
+        } catch (SmtpCircuitBreaker.CircuitOpenException e) {
+            // Цепь открылась посреди пачки — откладываем без учёта попытки
+            message.setNextAttemptAt(Instant.now().plus(e.getRetryAfter()));
+        } catch (RuntimeException e) {
+            onFailure(message, e);
+        } finally {
+            concurrency.release();
+        }
+        emailOutboxRepository.save(message);
+    }
+
+    private void onFailure(EmailOutboxMessage message, RuntimeException e) {
+        int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+        String error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        message.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (attempts >= maxAttempts) {
+            message.setStatus(EmailOutboxMessage.Status.DEAD);
+            dead.increment();
+            logger.error("Outbox message {} to {} dead-lettered after {} attempts: {}",
+                    message.getId(), message.getRecipient(), attempts, error);
+            return;
+        }
+        long backoffMillis = Math.min(maxBackoff.toMillis(), baseBackoff.toMillis() << Math.min(attempts - 1, 20));
+        message.setNextAttemptAt(Instant.now().plusMillis(backoffMillis));
+        failed.increment();
+        logger.warn("Outbox message {} to {} failed (attempt {}), retry in {} ms: {}",
+                message.getId(), message.getRecipient(), attempts, backoffMillis, error);
+    }
+
+    private void refreshGauges() {
+        pending.set(emailOutboxRepository.countByStatus(EmailOutboxMessage.Status.PENDING));
+        Instant oldest = emailOutboxRepository.findOldestCreatedAt(EmailOutboxMessage.Status.PENDING);
+        lagSeconds.set(oldest == null ? 0 : Duration.between(oldest, Instant.now()).toSeconds());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        drainer.shutdown();
+        senders.shutdown();
+    }
+}
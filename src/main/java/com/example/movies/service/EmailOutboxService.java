@@ -0,0 +1,29 @@
+package com.example.movies.service;
+
+import com.example.movies.model.EmailOutboxMessage;
+import com.example.movies.repository.EmailOutboxRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Queues emails in the caller's transaction. Nothing is sent here: the row
+ * becomes visible to {@link EmailOutboxDispatcher} only if the surrounding
+ * transaction commits.
+ */
+@Service
+public class EmailOutboxService {
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public EmailOutboxMessage enqueue(String to, String subject, String message) {
+        return emailOutboxRepository.save(new EmailOutboxMessage(to, subject, message, false));
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public EmailOutboxMessage enqueueHtml(String to, String subject, String htmlContent) {
+        return emailOutboxRepository.save(new EmailOutboxMessage(to, subject, htmlContent, true));
+    }
+}
@@ -2,7 +2,6 @@ package com.example.movies.service;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mail.MailException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -10,15 +9,39 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
 
 @Service
 public class EmailService {
 
     private final JavaMailSender javaMailSender;
+    private final EmailTemplateEngine templateEngine;
+    private final AttachmentStore attachmentStore;
+    private final SmtpCircuitBreaker circuitBreaker;
 
-    public EmailService(JavaMailSender javaMailSender) {
+    public EmailService(JavaMailSender javaMailSender, EmailTemplateEngine templateEngine,
+                        AttachmentStore attachmentStore, SmtpCircuitBreaker circuitBreaker) {
         this.javaMailSender = javaMailSender;
+        this.templateEngine = templateEngine;
+        this.attachmentStore = attachmentStore;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    // Шаблон из classpath:email-templates, разбирается один раз и кэшируется
+    public String renderTemplate(String templateName, Map<String, ?> values) {
+        return templateEngine.render(templateName, values);
+    }
+
+    public void sendTemplatedEmail(String to, String subject, String templateName, Map<String, ?> values) {
+        EmailTemplate template = templateEngine.get(templateName);
+        String body = template.render(values);
+        if (template.isHtml()) {
+            sendHtmlEmail(to, subject, body);
+        } else {
+            sendSimpleEmail(to, subject, body);
+        }
     }
 
     public void sendSimpleEmail(String to, String subject, String message) {
@@ -28,7 +51,7 @@ public class EmailService {
             helper.setTo(to);
             helper.setSubject(subject);
             helper.setText(message, false);
-            javaMailSender.send(mimeMessage);
+            send(mimeMessage);
         } catch (MessagingException | MailException e) {
             throw new RuntimeException("Не удалось отправить простое письмо на " + to, e);
         }
@@ -41,37 +64,46 @@ public class EmailService {
             helper.setTo(to);
             helper.setSubject(subject);
             helper.setText(htmlContent, true);
-            javaMailSender.send(mimeMessage);
+            send(mimeMessage);
         } catch (MessagingException | MailException e) {
             throw new RuntimeException("Не удалось отправить HTML письмо на " + to, e);
         }
     }
 
     public void sendEmailWithAttachment(String to, String subject, String message, String filePath) {
-        // Пока без реализации
-        throw new UnsupportedOperationException("Not implemented yet");
+        Path path = Path.of(filePath);
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Файл не найден: " + filePath);
+        }
+        try {
+            AttachmentStore.StoredAttachment attachment = attachmentStore.store(path);
+            sendWithAttachment(to, subject, message, path.getFileName().toString(), attachment);
+        } catch (IOException | MessagingException | MailException e) {
+            throw new RuntimeException("Не удалось отправить письмо с вложением на " + to, e);
+        }
     }
 
+    // Загрузка копируется в хранилище потоком, без file.getBytes()
     public void sendEmailWithUploadedAttachment(String to, String subject, String message, MultipartFile file) throws MessagingException, IOException {
+        AttachmentStore.StoredAttachment attachment = attachmentStore.store(file);
+        sendWithAttachment(to, subject, message, file.getOriginalFilename(), attachment);
+    }
+
+    private void sendWithAttachment(String to, String subject, String message, String filename,
+                                    AttachmentStore.StoredAttachment attachment) throws MessagingException {
         MimeMessage mimeMessage = javaMailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true);
 
         helper.setTo(to);
         helper.setSubject(subject);
         helper.setText(message, false);
-        helper.addAttachment(file.getOriginalFilename(), new ByteArrayResource(file.getBytes()));
+        helper.addAttachment(filename, attachment.resource());
 
-        javaMailSender.send(mimeMessage);
+        send(mimeMessage);
     }
 
-    // ✅ Массовая рассылка
-    public void sendBulkEmail(List<String> recipients, String subject, String message) {
-        for (String to : recipients) {
-            try {
-                sendSimpleEmail(to, subject, message);
-            } catch (RuntimeException e) {
-                System.err.println("Ошибка при отправке на: " + to + " — " + e.getMessage());
-            }
-        }
+    // Таймауты сокета заданы в spring.mail.properties; при открытой цепи — CircuitOpenException без ожидания
+    private void send(MimeMessage mimeMessage) {
+        circuitBreaker.run(() -> javaMailSender.send(mimeMessage));
     }
 }
@@ -0,0 +1,107 @@
+package com.example.movies.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Email body compiled once into literal segments and variable slots
+ * ({@code {{name}}}). Rendering only appends to a builder, it never
+ * re-parses the source, so one instance can serve any number of recipients.
+ * A placeholder whose name is not among the supplied values is written out
+ * unchanged, so literal {@code {{...}}} text in ad-hoc bodies survives.
+ */
+public final class EmailTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // literals[i] идёт перед variables[i]; последний литерал — хвост шаблона
+    private final String[] literals;
+    private final String[] variables;
+    // исходный текст плейсхолдеров — для переменных, которых нет среди значений
+    private final String[] placeholders;
+    private final boolean html;
+    private final int literalLength;
+
+    private EmailTemplate(String[] literals, String[] variables, String[] placeholders, boolean html) {
+        this.literals = literals;
+        this.variables = variables;
+        this.placeholders = placeholders;
+        this.html = html;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /** @param html when true, variable values are HTML-escaped */
+    public static EmailTemplate compile(String source, boolean html) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, pos);
+            int close = open < 0 ? -1 : source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                literals.add(source.substring(pos));
+                break;
+            }
+            literals.add(source.substring(pos, open));
+            variables.add(source.substring(open + OPEN.length(), close).trim());
+            placeholders.add(source.substring(open, close + CLOSE.length()));
+            pos = close + CLOSE.length();
+        }
+        return new EmailTemplate(literals.toArray(new String[0]), variables.toArray(new String[0]),
+                placeholders.toArray(new String[0]), html);
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    public String render(Map<String, ?> values) {
+        if (variables.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = new StringBuilder(literalLength + variables.length * 16);
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    /** Appends the rendered text, so batch callers can reuse one builder. */
+    public void renderTo(StringBuilder out, Map<String, ?> values) {
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]);
+            if (!values.containsKey(variables[i])) {
+                out.append(placeholders[i]);
+                continue;
+            }
+            Object value = values.get(variables[i]);
+            if (value != null) {
+                if (html) {
+                    appendEscaped(out, value.toString());
+                } else {
+                    out.append(value);
+                }
+            }
+        }
+        out.append(literals[variables.length]);
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.movies.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Loads and compiles email templates once. Named templates come from
+ * {@code classpath:email-templates/<name>.txt} (or {@code .html}); ad-hoc
+ * sources such as bulk-mail bodies are compiled and kept in a bounded cache.
+ */
+@Component
+public class EmailTemplateEngine {
+
+    private static final String LOCATION = "email-templates/";
+
+    private final Map<String, EmailTemplate> named = new ConcurrentHashMap<>();
+    private final Cache<String, EmailTemplate> adHoc = Caffeine.newBuilder()
+            .maximumSize(256)
+            .build();
+
+    public EmailTemplate get(String name) {
+        return named.computeIfAbsent(name, this::load);
+    }
+
+    public EmailTemplate compile(String source, boolean html) {
+        return adHoc.get((html ? "H:" : "T:") + source, key -> EmailTemplate.compile(source, html));
+    }
+
+    public String render(String name, Map<String, ?> values) {
+        return get(name).render(values);
+    }
+
+    /** Renders one template for many recipients, reusing a single buffer. */
+    public void renderEach(EmailTemplate template, Iterable<? extends Map<String, ?>> recipients, Consumer<String> sink) {
+        StringBuilder buffer = new StringBuilder(256);
+        for (Map<String, ?> values : recipients) {
+            buffer.setLength(0);
+            template.renderTo(buffer, values);
+            sink.accept(buffer.toString());
+        }
+    }
+
+    public List<String> renderAll(EmailTemplate template, List<? extends Map<String, ?>> recipients) {
+        List<String> rendered = new ArrayList<>(recipients.size());
+        renderEach(template, recipients, rendered::add);
+        return rendered;
+    }
+
+    private EmailTemplate load(String name) {
+        ClassPathResource html = new ClassPathResource(LOCATION + name + ".html");
+        ClassPathResource text = new ClassPathResource(LOCATION + name + ".txt");
+        ClassPathResource resource = html.exists() ? html : text;
+        if (!resource.exists()) {
+            throw new IllegalArgumentException("Шаблон письма не найден: " + name);
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return EmailTemplate.compile(new String(in.readAllBytes(), StandardCharsets.UTF_8), resource == html);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.movies.service;
 
+import com.example.movies.model.Course;
 import com.example.movies.model.Enrollment;
+import com.example.movies.model.User;
 import com.example.movies.repository.EnrollmentRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 @Service
 public class EnrollmentService {
@@ -14,23 +17,34 @@ public class EnrollmentService {
     @Autowired
     private EnrollmentRepository enrollmentRepository;
 
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private NotificationDigestService notificationDigestService;
+
     @Transactional
-    public Enrollment enrollStudent(Enrollment enrollment) {
+    public Enrollment enroll(User student, Course course) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStudent(student);
+        enrollment.setCourse(course);
         enrollment.setEnrollmentDate(LocalDate.now());
 
         Enrollment saved = enrollmentRepository.save(enrollment);
 
-        // Отправка письма
-        String to = saved.getStudent().getEmail();
-        String subject = "Вы были зачислены на курс";
-        String message = "Здравствуйте, " + saved.getStudent().getUsername() +
-                "! Вы были успешно зачислены на курс: " +
-                saved.getCourse().getTitle();
-
-        emailService.sendSimpleEmail(to, subject, message);
+        String to = student.getEmail();
+        if (to != null && !to.isBlank() && notificationDigestService.isEnabled()) {
+            // Несколько зачислений подряд придут одним письмом
+            notificationDigestService.addEnrollment(to, student.getUsername(), String.valueOf(course.getTitle()));
+        } else if (to != null && !to.isBlank()) {
+            String subject = "Зачисление на курс";
+            String message = emailService.renderTemplate("enrollment",
+                    Map.of("courseTitle", String.valueOf(course.getTitle())));
+            emailOutboxService.enqueue(to, subject, message);
+        }
 
         return saved;
     }
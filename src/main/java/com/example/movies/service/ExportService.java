@@ -0,0 +1,173 @@
+package com.example.movies.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.*;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Streams query results to the client as NDJSON or CSV. Rows come from a
+ * repository {@link Stream} (a server-side cursor with a fetch size) opened in
+ * a read-only transaction on the response thread, and each row is written as
+ * soon as it is read, so memory use does not depend on the row count. Rows are
+ * DTO records built by constructor queries, so the persistence context stays
+ * empty for the whole export.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = MediaType.parseMediaType(mediaType);
+            this.extension = extension;
+        }
+
+        public static Format of(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("format должен быть ndjson или csv: " + value);
+            }
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+
+    public ExportService(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public <T extends Record> ResponseEntity<StreamingResponseBody> export(String name, Format format,
+                                                                          Class<T> type, Supplier<Stream<T>> rows) {
+        StreamingResponseBody body = out -> readOnlyTx.executeWithoutResult(status -> {
+            long started = System.nanoTime();
+            long count;
+            try (Stream<T> stream = rows.get()) {
+                OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+                count = format == Format.CSV
+                        ? writeCsv(type, stream.iterator(), buffered)
+                        : writeNdjson(stream.iterator(), buffered);
+                buffered.flush();
+            } catch (IOException e) {
+                // клиент оборвал загрузку — курсор закрывается вместе с транзакцией
+                logger.warn("Export {} aborted: {}", name, e.getMessage());
+                throw new UncheckedIOException(e);
+            }
+            logger.info("Exported {} {} rows as {} in {} ms", count, name, format,
+                    (System.nanoTime() - started) / 1_000_000);
+        });
+        return ResponseEntity.ok()
+                .contentType(format.mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.extension).build().toString())
+                .body(body);
+    }
+
+    private long writeNdjson(Iterator<?> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(nonClosing(out))) {
+            while (rows.hasNext()) {
+                writer.write(rows.next());
+                count++;
+            }
+        }
+        if (count > 0) {
+            out.write('\n');
+        }
+        return count;
+    }
+
+    private long writeCsv(Class<? extends Record> type, Iterator<?> rows, OutputStream out) throws IOException {
+        RecordComponent[] columns = type.getRecordComponents();
+        Writer writer = new OutputStreamWriter(nonClosing(out), StandardCharsets.UTF_8);
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(columns[i].getName());
+        }
+        writer.write("\r\n");
+
+        long count = 0;
+        while (rows.hasNext()) {
+            Object row = rows.next();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(writer, read(columns[i], row));
+            }
+            writer.write("\r\n");
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    // RFC 4180: поля с запятой, кавычкой или переводом строки берутся в кавычки
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static Object read(RecordComponent component, Object row) {
+        try {
+            return component.getAccessor().invoke(row);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Закрытие ответа остаётся за контейнером
+    private static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.movies.service;
+
+import com.example.movies.model.NotificationDigestItem;
+import com.example.movies.repository.NotificationDigestItemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Digest mode for enrollment notifications ({@code email.digest.enabled}).
+ * Notifications are buffered per recipient in {@code notification_digest_items};
+ * once the recipient's first buffered notification is older than
+ * {@code email.digest.window}, all of them are merged into one outbox email.
+ */
+@Service
+public class NotificationDigestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDigestService.class);
+
+    private final NotificationDigestItemRepository digestItemRepository;
+    private final EmailOutboxService emailOutboxService;
+    private final EmailService emailService;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final Duration window;
+
+    private final Counter buffered;
+    private final Counter merged;
+
+    public NotificationDigestService(NotificationDigestItemRepository digestItemRepository,
+                                     EmailOutboxService emailOutboxService,
+                                     EmailService emailService,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${email.digest.enabled:false}") boolean enabled,
+                                     @Value("${email.digest.window:PT10M}") Duration window) {
+        this.digestItemRepository = digestItemRepository;
+        this.emailOutboxService = emailOutboxService;
+        this.emailService = emailService;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.window = window;
+        this.buffered = Counter.builder("email.digest.buffered").register(meterRegistry);
+        this.merged = Counter.builder("email.digest.sent").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void addEnrollment(String to, String username, String courseTitle) {
+        digestItemRepository.save(new NotificationDigestItem(to, username, courseTitle));
+        buffered.increment();
+    }
+
+    // Выполняется и при выключенном режиме: досылает то, что осталось в буфере
+    @Scheduled(fixedDelayString = "${email.digest.poll-interval:PT30S}")
+    public void flushDue() {
+        List<String> recipients = digestItemRepository.findDueRecipients(Instant.now().minus(window));
+        for (String recipient : recipients) {
+            try {
+                tx.executeWithoutResult(status -> flush(recipient));
+            } catch (RuntimeException e) {
+                logger.error("Digest for {} failed: {}", recipient, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void flush(String recipient) {
+        List<NotificationDigestItem> items = digestItemRepository.lockByRecipient(recipient);
+        if (items.isEmpty()) {
+            return; // уже собран другим узлом
+        }
+        NotificationDigestItem last = items.get(items.size() - 1);
+        if (items.size() == 1) {
+            emailOutboxService.enqueue(recipient, "Вы были зачислены на курс",
+                    emailService.renderTemplate("enrollment-welcome", Map.of(
+                            "username", last.getUsername(),
+                            "courseTitle", last.getCourseTitle())));
+        } else {
+            String courses = items.stream()
+                    .map(item -> "- " + item.getCourseTitle())
+                    .collect(Collectors.joining("\n"));
+            emailOutboxService.enqueue(recipient, "Вы были зачислены на курсы",
+                    emailService.renderTemplate("enrollment-digest", Map.of(
+                            "username", last.getUsername(),
+                            "count", items.size(),
+                            "courses", courses)));
+        }
+        digestItemRepository.deleteByIds(items.stream().map(NotificationDigestItem::getId).toList());
+        merged.increment();
+        logger.debug("Digest for {} merged {} notifications", recipient, items.size());
+    }
+}
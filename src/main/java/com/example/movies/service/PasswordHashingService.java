@@ -0,0 +1,123 @@
+package com.example.movies.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on a dedicated CPU-sized pool with a bounded queue, so a login
+ * storm cannot pin every Tomcat worker. When the queue is full callers get
+ * {@link BusyException} immediately instead of waiting.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration maxWait;
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Counter rejected;
+
+    public PasswordHashingService(BCryptPasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${security.password-hashing.threads:0}") int threads,
+                                  @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${security.password-hashing.max-wait:PT5S}") Duration maxWait) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxWait = maxWait;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("password.hashing.latency").tag("op", "encode")
+                .publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+        this.matchTimer = Timer.builder("password.hashing.latency").tag("op", "matches")
+                .publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected").register(meterRegistry);
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public String encode(String rawPassword) {
+        return await(submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword))));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return await(submit(() -> matchTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword))));
+    }
+
+    /** True when the stored hash was produced with a lower cost than the configured one. */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Re-hashes in the background; silently skipped when the pool is saturated,
+     * the next successful login will try again.
+     */
+    public void rehashAsync(String rawPassword, Consumer<String> onEncoded) {
+        try {
+            executor.execute(() -> onEncoded.accept(encodeTimer.record(() -> passwordEncoder.encode(rawPassword))));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    private <T> Future<T> submit(Supplier<T> task) {
+        try {
+            return executor.submit(task::get);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusyException();
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new BusyException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusyException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /** Hashing pool is saturated; the caller should answer 503 with Retry-After. */
+    public static class BusyException extends RuntimeException {
+        public BusyException() {
+            super("Password hashing capacity exhausted");
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.movies.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker for every call that talks to the SMTP server. After
+ * {@code email.smtp.circuit.failure-threshold} consecutive connection-level
+ * failures the circuit opens and calls fail immediately with
+ * {@link CircuitOpenException} instead of waiting on socket timeouts. After
+ * {@code email.smtp.circuit.open-duration} one probe call is let through;
+ * its outcome closes the circuit or opens it again.
+ *
+ * <p>Rejected recipients and malformed messages do not count as failures:
+ * the server answered, so it is healthy.
+ */
+@Component
+public class SmtpCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpCircuitBreaker.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    @FunctionalInterface
+    public interface SmtpCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface SmtpTask<E extends Exception> {
+        void run() throws E;
+    }
+
+    /** Thrown without touching the network while the circuit is open. */
+    public static class CircuitOpenException extends RuntimeException {
+
+        private final Duration retryAfter;
+
+        public CircuitOpenException(Duration retryAfter) {
+            super("SMTP-сервер недоступен, повторите через " + retryAfter.toSeconds() + " с");
+            this.retryAfter = retryAfter;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    // В полуоткрытом состоянии к серверу идёт ровно один пробный вызов
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+
+    private final Timer latency;
+    private final Counter rejected;
+
+    public SmtpCircuitBreaker(MeterRegistry meterRegistry,
+                              @Value("${email.smtp.circuit.failure-threshold:5}") int failureThreshold,
+                              @Value("${email.smtp.circuit.open-duration:PT30S}") Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.latency = Timer.builder("smtp.latency")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("smtp.circuit.rejected").register(meterRegistry);
+        Gauge.builder("smtp.circuit.state", state, s -> s.get().ordinal()).register(meterRegistry);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /** True when a call made now would reach the server (closed, or open long enough for a probe). */
+    public boolean allowsRequests() {
+        return state.get() == State.CLOSED || remainingOpenNanos() == 0;
+    }
+
+    public Duration retryAfter() {
+        return Duration.ofNanos(remainingOpenNanos());
+    }
+
+    public <T, E extends Exception> T execute(SmtpCall<T, E> call) throws E {
+        boolean probe = acquirePermission();
+        long started = System.nanoTime();
+        try {
+            T result = call.call();
+            onSuccess();
+            return result;
+        } catch (Exception e) {
+            if (isServerFailure(e)) {
+                onFailure(e);
+            } else {
+                onSuccess();
+            }
+            throw e;
+        } finally {
+            latency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            if (probe) {
+                probeInFlight.set(false);
+            }
+        }
+    }
+
+    public <E extends Exception> void run(SmtpTask<E> task) throws E {
+        execute(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private boolean acquirePermission() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return false;
+        }
+        if (remainingOpenNanos() == 0 && probeInFlight.compareAndSet(false, true)) {
+            state.set(State.HALF_OPEN);
+            return true;
+        }
+        rejected.increment();
+        throw new CircuitOpenException(retryAfter());
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            logger.info("SMTP circuit closed");
+        }
+    }
+
+    private void onFailure(Exception e) {
+        int failures = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+            openedAt.set(System.nanoTime());
+            state.set(State.OPEN);
+            logger.warn("SMTP circuit opened after {} consecutive failures: {}", failures, e.getMessage());
+        }
+    }
+
+    private long remainingOpenNanos() {
+        if (state.get() == State.CLOSED) {
+            return 0;
+        }
+        return Math.max(0, openNanos - (System.nanoTime() - openedAt.get()));
+    }
+
+    // Отказ по конкретному адресу или ошибка сборки письма — сервер при этом жив
+    private static boolean isServerFailure(Throwable e) {
+        if (e instanceof MailParseException || e instanceof MailPreparationException) {
+            return false;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SendFailedException || t instanceof AddressException) {
+                return false;
+            }
+            // JavaMailSenderImpl складывает ошибки отдельных писем в failedMessages, а не в cause
+            if (t instanceof MailSendException sendException && !sendException.getFailedMessages().isEmpty()
+                    && sendException.getFailedMessages().values().stream()
+                    .allMatch(failure -> failure instanceof SendFailedException || failure instanceof AddressException)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
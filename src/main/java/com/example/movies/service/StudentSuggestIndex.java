@@ -0,0 +1,421 @@
+package com.example.movies.service;
+
+import com.example.movies.dto.StudentSummary;
+import com.example.movies.event.UserChangedEvent;
+import com.example.movies.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Prefix autocomplete over student usernames and emails. The bulk of the data
+ * lives in an immutable packed snapshot: ids in a {@code long[]}, username and
+ * email as UTF-8 in one {@code byte[]}, and two {@code int[]} orderings sorted
+ * by lowercased username and email for binary search. That is 20 bytes per
+ * student (8 + 4 + 2 * 4) plus the text and a separator byte, so 1M students
+ * with 16-character usernames and 25-character emails take about 62 MB
+ * ({@code StudentSuggestIndexBenchmarkTests} measures such a snapshot; the
+ * live figure is the {@code students.suggest.memory.bytes} gauge).
+ *
+ * <p>Changes since the snapshot sit in a small delta (sorted maps) plus a set
+ * of tombstoned ids whose snapshot rows are outdated. {@link UserChangedEvent}s
+ * only queue the user id; queued ids are reloaded with one query before the
+ * next lookup, so a bulk import costs one query per thousand users rather than
+ * one per event. When the delta outgrows {@code students.suggest.compact-threshold}
+ * the snapshot is rebuilt from a streaming scan.
+ */
+@Component
+public class StudentSuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentSuggestIndex.class);
+
+    private static final String STUDENT_ROLE = "ROLE_USER";
+    private static final int RELOAD_CHUNK = 1000;
+    // грубая оценка для TreeMap/HashMap-узлов и строк одного студента в дельте
+    private static final int DELTA_ENTRY_BYTES = 400;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final int compactThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // поля ниже — под lock
+    private Snapshot base;
+    private final Map<Long, StudentSummary> delta = new HashMap<>();
+    private final TreeMap<String, StudentSummary> deltaByUsername = new TreeMap<>();
+    private final TreeMap<String, StudentSummary> deltaByEmail = new TreeMap<>();
+    private Set<Long> tombstones = new HashSet<>();
+    // id, изменённые во время пересборки: их строки в новом снимке могут быть устаревшими
+    private Set<Long> changedDuringRebuild;
+
+    private volatile boolean ready;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public StudentSuggestIndex(UserRepository userRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${students.suggest.compact-threshold:10000}") int compactThreshold) {
+        this.userRepository = userRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.compactThreshold = compactThreshold;
+        Gauge.builder("students.suggest.memory.bytes", this, StudentSuggestIndex::sizeInBytes)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("students.suggest.delta", this, StudentSuggestIndex::deltaSize).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuildAsync();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        pending.add(event.userId());
+    }
+
+    /**
+     * Up to {@code limit} students whose username or email starts with
+     * {@code prefix} (case-insensitive): username matches first, each group
+     * in alphabetical order.
+     */
+    public List<StudentSummary> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        applyPending();
+        List<StudentSummary> byUsername;
+        List<StudentSummary> byEmail;
+        lock.readLock().lock();
+        try {
+            byUsername = merge(base == null ? List.of() : base.usernameMatches(key, tombstones, limit),
+                    deltaMatches(deltaByUsername, key, limit), s -> normalize(s.username()), limit);
+            byEmail = merge(base == null ? List.of() : base.emailMatches(key, tombstones, limit),
+                    deltaMatches(deltaByEmail, key, limit), s -> normalize(s.email()), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<Long, StudentSummary> result = new LinkedHashMap<>();
+        for (StudentSummary student : byUsername) {
+            result.putIfAbsent(student.id(), student);
+        }
+        for (StudentSummary student : byEmail) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.putIfAbsent(student.id(), student);
+        }
+        return List.copyOf(result.values());
+    }
+
+    // Перечитывает из базы пользователей из очереди событий одним запросом на RELOAD_CHUNK id
+    private synchronized void applyPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pending);
+        pending.removeAll(ids);
+        Map<Long, StudentSummary> loaded = new HashMap<>();
+        readOnlyTx.executeWithoutResult(status -> {
+            for (int from = 0; from < ids.size(); from += RELOAD_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + RELOAD_CHUNK));
+                for (StudentSummary student : userRepository.findSummariesByRoleAndIdIn(STUDENT_ROLE, chunk)) {
+                    loaded.put(student.id(), student);
+                }
+            }
+        });
+        int deltaSize;
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                // удалён, переименован или больше не студент — строка снимка устарела в любом случае
+                tombstones.add(id);
+                removeDelta(id);
+                StudentSummary student = loaded.get(id);
+                if (student != null) {
+                    putDelta(student);
+                }
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.add(id);
+                }
+            }
+            deltaSize = delta.size() + tombstones.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (deltaSize > compactThreshold) {
+            rebuildAsync();
+        }
+    }
+
+    private void rebuildAsync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("student-suggest-rebuild").start(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Student suggest index rebuild failed: {}", e.getMessage(), e);
+                lock.writeLock().lock();
+                try {
+                    changedDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    private void rebuild() {
+        long started = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Snapshot.Builder builder = new Snapshot.Builder();
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<StudentSummary> students = userRepository.streamSummariesByRole(STUDENT_ROLE)) {
+                students.forEach(builder::add);
+            }
+        });
+        Snapshot next = builder.build();
+        lock.writeLock().lock();
+        try {
+            base = next;
+            // в дельте остаются только изменения, которые скан мог не увидеть
+            Set<Long> changed = changedDuringRebuild;
+            for (Long id : List.copyOf(delta.keySet())) {
+                if (!changed.contains(id)) {
+                    removeDelta(id);
+                }
+            }
+            tombstones = changed;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+        logger.info("Student suggest index rebuilt: {} students, {} KiB, {} ms",
+                next.size(), next.sizeInBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void putDelta(StudentSummary student) {
+        delta.put(student.id(), student);
+        deltaByUsername.put(deltaKey(student.username(), student.id()), student);
+        deltaByEmail.put(deltaKey(student.email(), student.id()), student);
+    }
+
+    private void removeDelta(Long id) {
+        StudentSummary old = delta.remove(id);
+        if (old != null) {
+            deltaByUsername.remove(deltaKey(old.username(), id));
+            deltaByEmail.remove(deltaKey(old.email(), id));
+        }
+    }
+
+    // id в ключе различает одинаковые адреса и имена в разном регистре
+    private static String deltaKey(String value, Long id) {
+        return normalize(value) + '\0' + id;
+    }
+
+    private static List<StudentSummary> deltaMatches(TreeMap<String, StudentSummary> index, String prefix, int limit) {
+        List<StudentSummary> matches = new ArrayList<>();
+        for (StudentSummary student : index.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            if (matches.size() == limit) {
+                break;
+            }
+            matches.add(student);
+        }
+        return matches;
+    }
+
+    private static List<StudentSummary> merge(List<StudentSummary> left, List<StudentSummary> right,
+                                              Function<StudentSummary, String> key, int limit) {
+        if (right.isEmpty()) {
+            return left;
+        }
+        List<StudentSummary> merged = new ArrayList<>(left.size() + right.size());
+        merged.addAll(left);
+        merged.addAll(right);
+        merged.sort(Comparator.comparing(key).thenComparing(StudentSummary::id));
+        return merged.size() > limit ? merged.subList(0, limit) : merged;
+    }
+
+    private long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return (base == null ? 0 : base.sizeInBytes())
+                    + (long) (delta.size() + tombstones.size()) * DELTA_ENTRY_BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int deltaSize() {
+        lock.readLock().lock();
+        try {
+            return delta.size() + tombstones.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /** Immutable packed student table with two sorted orderings. */
+    static final class Snapshot {
+
+        private final long[] ids;
+        // запись i — байты [offsets[i], offsets[i + 1]): username '\0' email в UTF-8
+        private final int[] offsets;
+        private final byte[] data;
+        private final int[] byUsername;
+        private final int[] byEmail;
+
+        private Snapshot(long[] ids, int[] offsets, byte[] data, int[] byUsername, int[] byEmail) {
+            this.ids = ids;
+            this.offsets = offsets;
+            this.data = data;
+            this.byUsername = byUsername;
+            this.byEmail = byEmail;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        long sizeInBytes() {
+            return (long) ids.length * Long.BYTES + (long) offsets.length * Integer.BYTES + data.length
+                    + (long) (byUsername.length + byEmail.length) * Integer.BYTES;
+        }
+
+        /** @param prefix lowercased; rows whose id is in {@code skip} are left out */
+        List<StudentSummary> usernameMatches(String prefix, Set<Long> skip, int limit) {
+            return prefixMatches(byUsername, false, prefix, skip, limit);
+        }
+
+        List<StudentSummary> emailMatches(String prefix, Set<Long> skip, int limit) {
+            return prefixMatches(byEmail, true, prefix, skip, limit);
+        }
+
+        private List<StudentSummary> prefixMatches(int[] order, boolean email, String prefix, Set<Long> skip, int limit) {
+            List<StudentSummary> matches = new ArrayList<>();
+            for (int i = lowerBound(order, email, prefix); i < order.length && matches.size() < limit; i++) {
+                int row = order[i];
+                if (!normalize(field(row, email)).startsWith(prefix)) {
+                    break;
+                }
+                if (!skip.contains(ids[row])) {
+                    matches.add(new StudentSummary(ids[row], field(row, false), field(row, true)));
+                }
+            }
+            return matches;
+        }
+
+        private int lowerBound(int[] order, boolean email, String key) {
+            int low = 0;
+            int high = order.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (normalize(field(order[mid], email)).compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private String field(int row, boolean email) {
+            int start = offsets[row];
+            int end = offsets[row + 1];
+            int separator = start;
+            while (data[separator] != 0) {
+                separator++;
+            }
+            return email
+                    ? new String(data, separator + 1, end - separator - 1, StandardCharsets.UTF_8)
+                    : new String(data, start, separator - start, StandardCharsets.UTF_8);
+        }
+
+        static final class Builder {
+
+            private long[] ids = new long[1024];
+            private int[] offsets = new int[1025];
+            private byte[] data = new byte[32 * 1024];
+            private int count;
+            // временные ключи для сортировки, после build() не хранятся
+            private final List<String> usernameKeys = new ArrayList<>();
+            private final List<String> emailKeys = new ArrayList<>();
+
+            void add(StudentSummary student) {
+                byte[] username = nullToEmpty(student.username()).getBytes(StandardCharsets.UTF_8);
+                byte[] email = nullToEmpty(student.email()).getBytes(StandardCharsets.UTF_8);
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2 + 1);
+                }
+                int start = offsets[count];
+                int end = start + username.length + 1 + email.length;
+                if (end > data.length) {
+                    data = Arrays.copyOf(data, Math.max(end, data.length * 2));
+                }
+                System.arraycopy(username, 0, data, start, username.length);
+                data[start + username.length] = 0;
+                System.arraycopy(email, 0, data, start + username.length + 1, email.length);
+                ids[count] = student.id();
+                offsets[count + 1] = end;
+                usernameKeys.add(normalize(student.username()));
+                emailKeys.add(normalize(student.email()));
+                count++;
+            }
+
+            Snapshot build() {
+                return new Snapshot(Arrays.copyOf(ids, count), Arrays.copyOf(offsets, count + 1),
+                        Arrays.copyOf(data, offsets[count]), sortedBy(usernameKeys), sortedBy(emailKeys));
+            }
+
+            private int[] sortedBy(List<String> keys) {
+                Integer[] order = new Integer[keys.size()];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, Comparator.comparing(keys::get));
+                return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+            }
+
+            private static String nullToEmpty(String value) {
+                return value == null ? "" : value;
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.movies.service;
+
+import com.example.movies.event.UserChangedEvent;
+import com.example.movies.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter of existing usernames. A negative answer means the
+ * username is definitely free and the {@code findByUsername} lookup can be
+ * skipped; a positive answer still goes to the database. The unique
+ * constraint on {@code users.username} remains the final authority.
+ *
+ * <p>Bloom filters cannot forget, so deletes and renames only leave stale
+ * bits behind (extra lookups, never wrong answers). Once enough of them pile
+ * up, or the filter outgrows its capacity, it is rebuilt from a streaming scan.
+ */
+@Component
+public class UsernameBloomFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameBloomFilter.class);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final double staleRebuildRatio;
+
+    private final Counter skippedLookups;
+    private final Counter falsePositives;
+
+    // null до окончания первого сканирования — тогда считаем, что любое имя может существовать
+    private volatile Bits current;
+    // фильтр, который сейчас строится; новые имена пишутся и в него
+    private volatile Bits building;
+    private final AtomicLong staleEntries = new AtomicLong();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public UsernameBloomFilter(UserRepository userRepository,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${users.bloom.expected-insertions:1000000}") long expectedInsertions,
+                               @Value("${users.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                               @Value("${users.bloom.stale-rebuild-ratio:0.2}") double staleRebuildRatio) {
+        this.userRepository = userRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.staleRebuildRatio = staleRebuildRatio;
+        this.skippedLookups = Counter.builder("users.bloom.skipped.lookups").register(meterRegistry);
+        this.falsePositives = Counter.builder("users.bloom.false.positives").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuildAsync();
+    }
+
+    /** False means the username is certainly not taken. */
+    public boolean mightContain(String username) {
+        Bits bits = current;
+        if (bits == null || bits.mightContain(username)) {
+            return true;
+        }
+        skippedLookups.increment();
+        return false;
+    }
+
+    /** Convenience for the common "check, then findByUsername" pattern. */
+    public boolean exists(String username) {
+        if (!mightContain(username)) {
+            return false;
+        }
+        boolean found = userRepository.findByUsername(username) != null;
+        if (!found && current != null) {
+            falsePositives.increment();
+        }
+        return found;
+    }
+
+    public void add(String username) {
+        Bits bits = current;
+        if (bits != null) {
+            bits.put(username);
+            if (bits.count() > bits.capacity()) {
+                rebuildAsync();
+            }
+        }
+        Bits next = building;
+        if (next != null) {
+            next.put(username);
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        switch (event.type()) {
+            case CREATED -> add(event.username());
+            case UPDATED -> {
+                if (!event.previousUsername().equals(event.username())) {
+                    add(event.username());
+                    markStale();
+                }
+            }
+            case DELETED -> markStale();
+        }
+    }
+
+    private void markStale() {
+        Bits bits = current;
+        if (bits != null && staleEntries.incrementAndGet() > bits.count() * staleRebuildRatio) {
+            rebuildAsync();
+        }
+    }
+
+    private void rebuildAsync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("username-bloom-rebuild").start(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("Username Bloom filter rebuild failed: {}", e.getMessage(), e);
+            } finally {
+                building = null;
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    private void rebuild() {
+        long started = System.nanoTime();
+        long capacity = Math.max(expectedInsertions, userRepository.count() * 2);
+        Bits next = new Bits(capacity, falsePositiveRate);
+        building = next;
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<String> usernames = userRepository.streamAllUsernames()) {
+                usernames.forEach(next::put);
+            }
+        });
+        current = next;
+        staleEntries.set(0);
+        logger.info("Username Bloom filter rebuilt: {} names, {} KiB, {} ms",
+                next.count(), next.sizeInBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** Lock-free bit set with k probes derived from one 64-bit hash (double hashing). */
+    static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long capacity;
+        private final long bitCount;
+        private final int hashFunctions;
+        private final AtomicLong count = new AtomicLong();
+
+        Bits(long expectedInsertions, double fpp) {
+            this.capacity = expectedInsertions;
+            long m = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) >>> 6);
+            this.words = new AtomicLongArray(words);
+            this.bitCount = (long) words << 6;
+            this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        }
+
+        void put(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashFunctions; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                while (((word = words.get(index)) & mask) == 0) {
+                    if (words.compareAndSet(index, word, word | mask)) {
+                        break;
+                    }
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashFunctions; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long capacity() {
+            return capacity;
+        }
+
+        long sizeInBytes() {
+            return (long) words.length() * Long.BYTES;
+        }
+
+        // FNV-1a по символам + финальное перемешивание из MurmurHash3
+        private static long hash64(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
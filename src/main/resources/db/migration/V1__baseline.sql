@@ -0,0 +1,99 @@
+-- Схема на момент перехода на Flyway. Выполняется и на существующей базе (baseline-version=0):
+-- там ddl-auto=update успел создать только roles, users, users_roles, courses, course_student и enrollments,
+-- поэтому всё создаётся через if not exists, а недостающие столбцы добавляются отдельно.
+
+create table if not exists roles (
+    id   bigint generated by default as identity primary key,
+    name varchar(255) unique
+);
+
+create table if not exists users (
+    id            bigint generated by default as identity primary key,
+    username      varchar(255) unique,
+    password      varchar(255),
+    email         varchar(255) not null unique,
+    token_version integer not null default 0
+);
+alter table users add column if not exists token_version integer not null default 0;
+
+create table if not exists users_roles (
+    user_id bigint not null references users (id),
+    role_id bigint not null references roles (id),
+    primary key (user_id, role_id)
+);
+
+create table if not exists courses (
+    id           bigint generated by default as identity primary key,
+    title        varchar(255),
+    description  varchar(255),
+    credit_hours integer,
+    teacher_id   bigint references users (id)
+);
+
+create table if not exists course_student (
+    course_id  bigint not null references courses (id),
+    student_id bigint not null references users (id),
+    primary key (course_id, student_id)
+);
+
+create table if not exists enrollments (
+    id              bigint generated by default as identity primary key,
+    student_id      bigint not null references users (id),
+    course_id       bigint not null references courses (id),
+    enrollment_date date
+);
+
+create table if not exists revoked_tokens (
+    id         bigint generated by default as identity primary key,
+    jti        varchar(64) not null unique,
+    expires_at timestamp(6) with time zone not null,
+    revoked_at timestamp(6) with time zone not null
+);
+
+create table if not exists email_outbox (
+    id              bigint generated by default as identity primary key,
+    recipient       varchar(255) not null,
+    subject         varchar(255) not null,
+    body            text not null,
+    html            boolean not null,
+    status          varchar(16) not null,
+    attempts        integer not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    created_at      timestamp(6) with time zone not null,
+    sent_at         timestamp(6) with time zone,
+    last_error      varchar(1000)
+);
+
+create table if not exists email_jobs (
+    id              bigint generated by default as identity primary key,
+    subject         varchar(255) not null,
+    body            text not null,
+    html            boolean not null,
+    attachment_hash varchar(64),
+    attachment_name varchar(255),
+    status          varchar(16) not null,
+    total           integer not null,
+    sent_count      integer not null,
+    failed_count    integer not null,
+    lease_until     timestamp(6) with time zone,
+    created_at      timestamp(6) with time zone not null,
+    updated_at      timestamp(6) with time zone not null
+);
+
+create table if not exists email_job_recipients (
+    id     bigint generated by default as identity primary key,
+    job_id bigint not null,
+    email  varchar(255) not null,
+    status varchar(16) not null,
+    error  varchar(1000)
+);
+
+create table if not exists notification_digest_items (
+    id           bigint generated by default as identity primary key,
+    recipient    varchar(255) not null,
+    username     varchar(255) not null,
+    course_title varchar(255) not null,
+    created_at   timestamp(6) with time zone not null
+);
+
+create index if not exists idx_digest_items_recipient on notification_digest_items (recipient);
@@ -0,0 +1,57 @@
+-- IDENTITY -> последовательности с шагом 50 (Hibernate pooled-lo берёт блок id за один nextval и может батчить INSERT).
+-- Существующие id сохраняются: каждая последовательность начинается после max(id).
+-- Вставки в обход Hibernate (JDBC-импорт) берут id из той же последовательности через default.
+
+create sequence if not exists roles_seq increment by 50;
+select setval('roles_seq', (select coalesce(max(id), 0) + 1 from roles), false);
+alter table roles alter column id drop identity if exists;
+alter table roles alter column id set default nextval('roles_seq');
+alter sequence roles_seq owned by roles.id;
+
+create sequence if not exists users_seq increment by 50;
+select setval('users_seq', (select coalesce(max(id), 0) + 1 from users), false);
+alter table users alter column id drop identity if exists;
+alter table users alter column id set default nextval('users_seq');
+alter sequence users_seq owned by users.id;
+
+create sequence if not exists courses_seq increment by 50;
+select setval('courses_seq', (select coalesce(max(id), 0) + 1 from courses), false);
+alter table courses alter column id drop identity if exists;
+alter table courses alter column id set default nextval('courses_seq');
+alter sequence courses_seq owned by courses.id;
+
+create sequence if not exists enrollments_seq increment by 50;
+select setval('enrollments_seq', (select coalesce(max(id), 0) + 1 from enrollments), false);
+alter table enrollments alter column id drop identity if exists;
+alter table enrollments alter column id set default nextval('enrollments_seq');
+alter sequence enrollments_seq owned by enrollments.id;
+
+create sequence if not exists revoked_tokens_seq increment by 50;
+select setval('revoked_tokens_seq', (select coalesce(max(id), 0) + 1 from revoked_tokens), false);
+alter table revoked_tokens alter column id drop identity if exists;
+alter table revoked_tokens alter column id set default nextval('revoked_tokens_seq');
+alter sequence revoked_tokens_seq owned by revoked_tokens.id;
+
+create sequence if not exists email_outbox_seq increment by 50;
+select setval('email_outbox_seq', (select coalesce(max(id), 0) + 1 from email_outbox), false);
+alter table email_outbox alter column id drop identity if exists;
+alter table email_outbox alter column id set default nextval('email_outbox_seq');
+alter sequence email_outbox_seq owned by email_outbox.id;
+
+create sequence if not exists email_jobs_seq increment by 50;
+select setval('email_jobs_seq', (select coalesce(max(id), 0) + 1 from email_jobs), false);
+alter table email_jobs alter column id drop identity if exists;
+alter table email_jobs alter column id set default nextval('email_jobs_seq');
+alter sequence email_jobs_seq owned by email_jobs.id;
+
+create sequence if not exists email_job_recipients_seq increment by 50;
+select setval('email_job_recipients_seq', (select coalesce(max(id), 0) + 1 from email_job_recipients), false);
+alter table email_job_recipients alter column id drop identity if exists;
+alter table email_job_recipients alter column id set default nextval('email_job_recipients_seq');
+alter sequence email_job_recipients_seq owned by email_job_recipients.id;
+
+create sequence if not exists notification_digest_items_seq increment by 50;
+select setval('notification_digest_items_seq', (select coalesce(max(id), 0) + 1 from notification_digest_items), false);
+alter table notification_digest_items alter column id drop identity if exists;
+alter table notification_digest_items alter column id set default nextval('notification_digest_items_seq');
+alter sequence notification_digest_items_seq owned by notification_digest_items.id;
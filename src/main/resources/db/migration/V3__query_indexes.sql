@@ -0,0 +1,31 @@
+-- Индексы под фильтры и поиск (StudentSpecifications, CourseSpecifications, EnrollmentSpecifications)
+-- и под проверку повторного зачисления.
+
+create extension if not exists pg_trgm;
+
+-- users: lower(username) = ? и lower(username) like 'x%' (text_pattern_ops даёт префиксный поиск при любой collation)
+create index if not exists idx_users_username_lower on users (lower(username) text_pattern_ops);
+-- users: lower(email) = ?
+create index if not exists idx_users_email_lower on users (lower(email));
+-- courses.instructorName: lower(teacher.username) like '%x%'
+create index if not exists idx_users_username_trgm on users using gin (lower(username) gin_trgm_ops);
+-- студенты по роли: join users_roles по role_id
+create index if not exists idx_users_roles_role on users_roles (role_id);
+
+-- courses: lower(title) like '%x%'
+create index if not exists idx_courses_title_trgm on courses using gin (lower(title) gin_trgm_ops);
+-- courses: join на преподавателя
+create index if not exists idx_courses_teacher on courses (teacher_id);
+create index if not exists idx_course_student_student on course_student (student_id);
+
+-- enrollments: повторные зачисления удаляются (остаётся самое раннее), затем пара становится уникальной.
+-- Уникальный индекс (student_id, course_id) обслуживает и фильтр по student_id, и existsByStudentAndCourse.
+delete from enrollments e
+using enrollments d
+where e.student_id = d.student_id
+  and e.course_id = d.course_id
+  and e.id > d.id;
+alter table enrollments add constraint uk_enrollments_student_course unique (student_id, course_id);
+create index if not exists idx_enrollments_course on enrollments (course_id);
+-- enrollments по дате: страница сортируется по id, поэтому id во втором столбце — иначе планировщик идёт по PK с фильтром
+create index if not exists idx_enrollments_date on enrollments (enrollment_date, id);
@@ -0,0 +1,56 @@
+package com.example.movies.pagination;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetPaginationTests {
+
+    @Test
+    void cursorRoundTripsValueWithSeparatorsAndUnicode() {
+        KeysetPagination.Cursor cursor = new KeysetPagination.Cursor("title", Sort.Direction.DESC,
+                "Алгебра\nи =геометрия", 42);
+
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), "token must be URL-safe: " + token);
+        assertEquals(cursor, KeysetPagination.Cursor.decode(token));
+    }
+
+    @Test
+    void cursorRoundTripsNullAndEmptyValues() {
+        KeysetPagination.Cursor nullValue = new KeysetPagination.Cursor("title", Sort.Direction.ASC, null, 7);
+        KeysetPagination.Cursor emptyValue = new KeysetPagination.Cursor("title", Sort.Direction.ASC, "", 8);
+
+        assertEquals(nullValue, KeysetPagination.Cursor.decode(nullValue.encode()));
+        assertEquals(emptyValue, KeysetPagination.Cursor.decode(emptyValue.encode()));
+    }
+
+    @Test
+    void emptyTokenMeansFirstPage() {
+        assertNull(KeysetPagination.Cursor.decode(null));
+        assertNull(KeysetPagination.Cursor.decode(""));
+    }
+
+    @Test
+    void malformedTokensAreRejectedAsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetPagination.Cursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPagination.Cursor.decode(encode("ASC\ntitle")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPagination.Cursor.decode(encode("UP\ntitle\n1\n")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPagination.Cursor.decode(encode("ASC\ntitle\nx\n")));
+    }
+
+    @Test
+    void nonPositiveSizeIsRejectedBeforeQuerying() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetPagination.fetch(null, null,
+                Sort.Order.asc("id"), "", 0));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
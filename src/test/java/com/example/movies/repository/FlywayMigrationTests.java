@@ -0,0 +1,128 @@
+package com.example.movies.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Flyway migrations with the application's baseline settings on an
+ * empty database and on a database created by ddl-auto=update before Flyway
+ * was introduced (db/pre-flyway-schema.sql).
+ *
+ * <p>Needs Docker; runs with {@code mvn -Pdb-tests test}.
+ */
+@Tag("postgres")
+@Testcontainers(disabledWithoutDocker = true)
+class FlywayMigrationTests {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final List<String> TABLES = List.of("roles", "users", "users_roles", "courses", "course_student",
+            "enrollments", "revoked_tokens", "email_outbox", "email_jobs", "email_job_recipients",
+            "notification_digest_items");
+
+    @Test
+    void migratesEmptyDatabase() throws Exception {
+        String url = createDatabase("fresh");
+        migrate(url);
+
+        try (Connection connection = connect(url)) {
+            assertEquals(TABLES.stream().sorted().toList(), tables(connection));
+            assertEquals(3, appliedVersion(connection));
+        }
+    }
+
+    @Test
+    void upgradesPreFlywaySchema() throws Exception {
+        String url = createDatabase("legacy");
+        try (Connection connection = connect(url); Statement statement = connection.createStatement()) {
+            statement.execute(resource("/db/pre-flyway-schema.sql"));
+        }
+        migrate(url);
+
+        try (Connection connection = connect(url); Statement statement = connection.createStatement()) {
+            assertEquals(TABLES.stream().sorted().toList(), tables(connection));
+            assertEquals(3, appliedVersion(connection));
+            assertEquals(List.of("admin:0", "teacher:0", "student1:0", "student2:0"),
+                    strings(statement, "select username || ':' || token_version from users order by id"));
+            // повторное зачисление удалено, остальные строки и их id на месте
+            assertEquals(List.of("1:3:1", "2:4:2"),
+                    strings(statement, "select id || ':' || student_id || ':' || course_id from enrollments order by id"));
+            // новые строки получают id из последовательностей, после уже занятых
+            statement.execute("insert into users (username, password, email) values ('student3', 'x', 's3@example.com')");
+            assertEquals(List.of("5"), strings(statement, "select max(id) from users"));
+            statement.execute("insert into revoked_tokens (jti, expires_at, revoked_at) values ('user:3', now(), now())");
+            assertThrows(SQLException.class, () -> statement.execute(
+                    "insert into enrollments (student_id, course_id, enrollment_date) values (3, 1, current_date)"));
+        }
+    }
+
+    /** The same baseline settings Spring Boot passes to Flyway. */
+    private static void migrate(String url) throws IOException {
+        Properties app = new Properties();
+        try (InputStream in = FlywayMigrationTests.class.getResourceAsStream("/application.properties")) {
+            app.load(in);
+        }
+        Flyway.configure()
+                .dataSource(url, postgres.getUsername(), postgres.getPassword())
+                .baselineOnMigrate(Boolean.parseBoolean(app.getProperty("spring.flyway.baseline-on-migrate")))
+                .baselineVersion(app.getProperty("spring.flyway.baseline-version"))
+                .load()
+                .migrate();
+    }
+
+    private static String createDatabase(String name) throws SQLException {
+        try (Connection connection = connect(postgres.getJdbcUrl()); Statement statement = connection.createStatement()) {
+            statement.execute("create database " + name);
+        }
+        return "jdbc:postgresql://" + postgres.getHost() + ":" + postgres.getMappedPort(5432) + "/" + name;
+    }
+
+    private static Connection connect(String url) throws SQLException {
+        return DriverManager.getConnection(url, postgres.getUsername(), postgres.getPassword());
+    }
+
+    private static List<String> tables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return strings(statement, "select table_name from information_schema.tables " +
+                    "where table_schema = 'public' and table_name <> 'flyway_schema_history' order by table_name");
+        }
+    }
+
+    private static int appliedVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return Integer.parseInt(strings(statement, "select max(version::int) from flyway_schema_history " +
+                    "where success and type = 'SQL'").get(0));
+        }
+    }
+
+    private static List<String> strings(Statement statement, String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                values.add(rows.getString(1));
+            }
+        }
+        return values;
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = FlywayMigrationTests.class.getResourceAsStream(name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
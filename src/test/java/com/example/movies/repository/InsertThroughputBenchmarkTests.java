@@ -0,0 +1,155 @@
+package com.example.movies.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Insert throughput of the statement patterns Hibernate issues before and
+ * after the switch to pooled sequences: one INSERT per row reading back the
+ * generated key (IDENTITY), against ids taken 50 at a time from the sequence
+ * (pooled-lo) and INSERTs sent in JDBC batches of 50 that the driver rewrites
+ * into multi-row statements (reWriteBatchedInserts).
+ *
+ * <p>Needs Docker; runs with {@code mvn -Pbenchmarks test}.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class InsertThroughputBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(InsertThroughputBenchmarkTests.class);
+
+    private static final int ROWS = 20_000;
+    private static final int BATCH = 50;
+    private static final int ROWS_PER_TX = 1000;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+    }
+
+    @Test
+    void batchedSequenceInsertsOutrunIdentityInserts() throws SQLException {
+        insertIdentityStyle(2_000);
+        insertBatchedStyle(2_000);
+
+        long identityNanos = insertIdentityStyle(ROWS);
+        long batchedNanos = insertBatchedStyle(ROWS);
+
+        logger.info("Course inserts, {} rows: IDENTITY {} rows/s, pooled-lo + batch of {} {} rows/s",
+                ROWS, perSecond(identityNanos), BATCH, perSecond(batchedNanos));
+        assertTrue(batchedNanos < identityNanos);
+    }
+
+    // До: INSERT на каждую сущность и сразу чтение ключа
+    private static long insertIdentityStyle(int rows) throws SQLException {
+        try (Connection connection = connect(false)) {
+            truncate(connection);
+            long started = System.nanoTime();
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into courses (title, description, credit_hours) values (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < rows; i++) {
+                    bind(insert, 1, i);
+                    insert.executeUpdate();
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        keys.next();
+                    }
+                    if ((i + 1) % ROWS_PER_TX == 0) {
+                        connection.commit();
+                    }
+                }
+            }
+            connection.commit();
+            long elapsed = System.nanoTime() - started;
+            assertEquals(rows, count(connection));
+            return elapsed;
+        }
+    }
+
+    // После: один nextval на 50 id, INSERT пачками
+    private static long insertBatchedStyle(int rows) throws SQLException {
+        try (Connection connection = connect(true)) {
+            truncate(connection);
+            long started = System.nanoTime();
+            try (PreparedStatement nextval = connection.prepareStatement("select nextval('courses_seq')");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "insert into courses (id, title, description, credit_hours) values (?, ?, ?, ?)")) {
+                long nextId = 0;
+                long lastId = -1;
+                for (int i = 0; i < rows; i++) {
+                    if (nextId > lastId) {
+                        try (ResultSet value = nextval.executeQuery()) {
+                            value.next();
+                            nextId = value.getLong(1);
+                        }
+                        lastId = nextId + BATCH - 1;
+                    }
+                    insert.setLong(1, nextId++);
+                    bind(insert, 2, i);
+                    insert.addBatch();
+                    if ((i + 1) % BATCH == 0) {
+                        insert.executeBatch();
+                    }
+                    if ((i + 1) % ROWS_PER_TX == 0) {
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+            long elapsed = System.nanoTime() - started;
+            assertEquals(rows, count(connection));
+            return elapsed;
+        }
+    }
+
+    private static void bind(PreparedStatement insert, int first, int i) throws SQLException {
+        insert.setString(first, "Course " + i);
+        insert.setString(first + 1, "Description of course " + i);
+        insert.setInt(first + 2, i % 6 + 1);
+    }
+
+    private static Connection connect(boolean rewriteBatchedInserts) throws SQLException {
+        Connection connection = DriverManager.getConnection(
+                postgres.getJdbcUrl() + "&reWriteBatchedInserts=" + rewriteBatchedInserts,
+                postgres.getUsername(), postgres.getPassword());
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private static void truncate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("truncate courses cascade");
+        }
+        connection.commit();
+    }
+
+    private static int count(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("select count(*) from courses")) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+
+    private static long perSecond(long nanos) {
+        return ROWS * 1_000_000_000L / nanos;
+    }
+}
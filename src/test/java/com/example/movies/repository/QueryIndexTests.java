@@ -0,0 +1,250 @@
+package com.example.movies.repository;
+
+import com.example.movies.model.Course;
+import com.example.movies.model.User;
+import com.example.movies.pagination.PagedQueries;
+import com.example.movies.specification.CourseSpecifications;
+import com.example.movies.specification.EnrollmentSpecifications;
+import com.example.movies.specification.StudentSpecifications;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the queries behind the filter endpoints are served by the
+ * indexes from V3__query_indexes.sql. Each case runs the endpoint's own code
+ * path (the specification through {@link PagedQueries#fetch}, default sort and
+ * totals) against PostgreSQL, captures the SQL Hibernate generates and runs
+ * EXPLAIN on it with the same values. The planner works from ANALYZE
+ * statistics over a few hundred thousand rows (after VACUUM, as autovacuum would leave them), with no plan settings forced.
+ *
+ * <p>The database starts as a pre-Flyway schema (db/pre-flyway-schema.sql)
+ * that the application's Flyway settings upgrade, and Hibernate validates the
+ * result. Exact {@code title} and {@code creditHours} filters have no index
+ * and are not checked. Needs Docker; runs with {@code mvn -Pdb-tests test}.
+ */
+@Tag("postgres")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "logging.file.name=target/query-index-tests.log"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PagedQueries.class, QueryIndexTests.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class QueryIndexTests {
+
+    private static final int STUDENTS = 200_000;
+    private static final int COURSES = 50_000;
+    private static final int TEACHERS = 10_000;
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "id"));
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withInitScript("db/pre-flyway-schema.sql");
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+    private static boolean seeded;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer captureStatements() {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                    (StatementInspector) sql -> {
+                        statements.add(sql);
+                        return sql;
+                    });
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PagedQueries pagedQueries;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @BeforeEach
+    void seedOnce() {
+        if (seeded) {
+            return;
+        }
+        jdbcTemplate.execute("insert into users (username, password, email) " +
+                "select 'u' || substr(md5(g::text), 1, 12), 'x', 'e' || substr(md5(g::text), 13, 12) || '@example.com' " +
+                "from generate_series(1, " + STUDENTS + ") g");
+        jdbcTemplate.execute("insert into users_roles (user_id, role_id) " +
+                "select u.id, r.id from users u, roles r where r.name = 'ROLE_USER' and u.username like 'u%' " +
+                "on conflict do nothing");
+        // V2 выдаёт id блоками последовательности, поэтому связи строятся по номеру строки, а не по id
+        jdbcTemplate.execute("insert into courses (title, description, credit_hours, teacher_id) " +
+                "select 'Course ' || md5('c' || g), 'About ' || g, g % 6 + 1, t.id " +
+                "from generate_series(1, " + COURSES + ") g " +
+                "join (" + numbered("users", "username like 'u%'") + ") t on t.n = g % " + TEACHERS);
+        // у каждого студента три разных курса: (s * 7 + k * 16661) mod COURSES различны при k = 0, 1, 2
+        jdbcTemplate.execute("insert into enrollments (student_id, course_id, enrollment_date) " +
+                "select s.id, c.id, date '2024-01-01' + g % 730 " +
+                "from generate_series(0, 299999) g " +
+                "join (" + numbered("users", "username like 'u%'") + ") s on s.n = g / 3 " +
+                "join (" + numbered("courses", "title like 'Course %'") + ") c " +
+                "on c.n = ((g / 3) * 7 + (g % 3) * 16661) % " + COURSES);
+        // vacuum сбрасывает pending list GIN-индексов после массовой вставки, как это сделал бы autovacuum
+        jdbcTemplate.execute("vacuum analyze");
+        seeded = true;
+    }
+
+    private static String numbered(String table, String condition) {
+        return "select id, row_number() over (order by id) - 1 as n from " + table + " where " + condition;
+    }
+
+    @Test
+    void studentFiltersUseUserIndexes() {
+        Map<String, Object> student = jdbcTemplate.queryForMap(
+                "select username, email from users where username like 'u%' order by id offset 4242 limit 1");
+        String username = (String) student.get("username");
+        String email = (String) student.get("email");
+
+        assertStudentQueryUses("idx_users_username_lower", Map.of("name", username.toUpperCase()), username);
+        assertStudentQueryUses("idx_users_username_lower", Map.of("name_like", username.substring(0, 6)),
+                username.substring(0, 6) + "%");
+        assertStudentQueryUses("idx_users_email_lower", Map.of("email", email), email);
+    }
+
+    @Test
+    void courseFiltersUseTrigramIndexes() {
+        String title = jdbcTemplate.queryForObject(
+                "select title from courses where title like 'Course %' order by id offset 777 limit 1", String.class);
+        String teacher = jdbcTemplate.queryForObject(
+                "select username from users where username like 'u%' order by id offset 42 limit 1", String.class);
+
+        String titlePart = title.substring(12, 20).toUpperCase();
+        assertCourseQueryUses("idx_courses_title_trgm", Map.of("title_like", titlePart),
+                "%" + titlePart.toLowerCase() + "%");
+        String teacherPart = teacher.substring(3, 11);
+        assertCourseQueryUses("idx_users_username_trgm", Map.of("instructorName", teacherPart),
+                "%" + teacherPart + "%");
+    }
+
+    @Test
+    void enrollmentFiltersUseEnrollmentIndexes() {
+        Long studentId = jdbcTemplate.queryForObject(
+                "select student_id from enrollments order by id offset 5000 limit 1", Long.class);
+        Long courseId = jdbcTemplate.queryForObject(
+                "select course_id from enrollments order by id offset 5000 limit 1", Long.class);
+        LocalDate date = LocalDate.of(2024, 3, 1);
+
+        assertEnrollmentQueryUses("uk_enrollments_student_course", studentId, null, null, studentId);
+        assertEnrollmentQueryUses("idx_enrollments_course", null, courseId, null, courseId);
+        assertEnrollmentQueryUses("idx_enrollments_date", null, null, date, date);
+
+        User student = userRepository.findById(studentId).orElseThrow();
+        Course course = courseRepository.findById(courseId).orElseThrow();
+        List<String> captured = capture(() -> enrollmentRepository.existsByStudentAndCourse(student, course));
+        assertUsesIndex("uk_enrollments_student_course", queriesOn("enrollments", captured), studentId, courseId);
+    }
+
+    private void assertStudentQueryUses(String index, Map<String, String> params, Object... values) {
+        List<String> captured = capture(() -> pagedQueries.fetch(userRepository,
+                StudentSpecifications.filterStudents(params), "users", params, FIRST_PAGE, PagedQueries.TotalsMode.EXACT));
+        assertUsesIndex(index, queriesOn("users", captured), values);
+    }
+
+    private void assertCourseQueryUses(String index, Map<String, String> params, Object... values) {
+        List<String> captured = capture(() -> pagedQueries.fetch(courseRepository,
+                CourseSpecifications.filterCourses(params), "courses", params, FIRST_PAGE, PagedQueries.TotalsMode.EXACT));
+        assertUsesIndex(index, queriesOn("courses", captured), values);
+    }
+
+    private void assertEnrollmentQueryUses(String index, Long studentId, Long courseId, LocalDate date,
+                                           Object... values) {
+        List<String> captured = capture(() -> pagedQueries.fetch(enrollmentRepository,
+                EnrollmentSpecifications.filterEnrollments(studentId, courseId, date), "enrollments",
+                Map.of(), FIRST_PAGE, PagedQueries.TotalsMode.EXACT));
+        assertUsesIndex(index, queriesOn("enrollments", captured), values);
+    }
+
+    private static List<String> capture(Runnable query) {
+        statements.clear();
+        query.run();
+        return List.copyOf(statements);
+    }
+
+    // Запросы по самой таблице фильтра; догрузки связей по первичному ключу не проверяются
+    private static List<String> queriesOn(String table, List<String> captured) {
+        List<String> queries = captured.stream()
+                .filter(sql -> sql.startsWith("select") && sql.contains(" from " + table + " "))
+                .toList();
+        assertFalse(queries.isEmpty(), () -> "no query on " + table + " among " + captured);
+        return queries;
+    }
+
+    /**
+     * EXPLAIN with the filter values bound in order; Hibernate binds the page
+     * offset and size after them ({@code offset ? rows fetch first ? rows only}).
+     */
+    private void assertUsesIndex(String index, List<String> queries, Object... values) {
+        for (String sql : queries) {
+            List<Object> args = new ArrayList<>(Arrays.asList(values));
+            if (sql.contains("offset ? rows")) {
+                args.add(FIRST_PAGE.getOffset());
+            }
+            if (sql.contains("fetch first ? rows")) {
+                args.add(FIRST_PAGE.getPageSize());
+            }
+            long placeholders = sql.chars().filter(c -> c == '?').count();
+            assertEquals(placeholders, args.size(), () -> "unexpected parameters in " + sql);
+            String plan = String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class, args.toArray()));
+            assertTrue(plan.contains(index), () -> "expected " + index + " in plan of: " + sql + "\n" + plan);
+            assertFalse(plan.contains("Seq Scan"), () -> "sequential scan in plan of: " + sql + "\n" + plan);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.movies.security;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of a {@link TokenBucket} check under contention: eight threads on
+ * one shared bucket, the same check behind a monitor, and eight threads on
+ * their own buckets looked up in a {@code ConcurrentHashMap} as
+ * {@link RateLimitFilter} does. Also checks that the hot path does not
+ * allocate. Runs with {@code mvn -Pbenchmarks test}.
+ */
+@Tag("benchmark")
+class TokenBucketBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenBucketBenchmarkTests.class);
+
+    private static final int THREADS = 8;
+    private static final int CHECKS_PER_THREAD = 2_000_000;
+    // Ёмкость и скорость заведомо больше нагрузки: измеряется сама проверка, а не отказы
+    private static final int CAPACITY = Integer.MAX_VALUE;
+    private static final double REFILL_PER_SECOND = 1e9;
+    private static final String[] CLIENTS = IntStream.range(0, THREADS).mapToObj(i -> "user:" + i).toArray(String[]::new);
+
+    @Test
+    void checkCostUnderContention() throws InterruptedException {
+        TokenBucket shared = new TokenBucket(CAPACITY, REFILL_PER_SECOND, System.nanoTime());
+        LockedBucket locked = new LockedBucket(shared.get());
+        ConcurrentHashMap<String, TokenBucket> perClient = new ConcurrentHashMap<>();
+
+        for (int round = 0; round < 2; round++) {
+            long lockFree = nanosPerCheck(thread -> shared.tryConsume(System.nanoTime()));
+            long monitor = nanosPerCheck(thread -> locked.tryConsume(System.nanoTime()));
+            long striped = nanosPerCheck(thread -> perClient
+                    .computeIfAbsent(CLIENTS[(int) thread],
+                            key -> new TokenBucket(CAPACITY, REFILL_PER_SECOND, System.nanoTime()))
+                    .tryConsume(System.nanoTime()));
+            if (round == 1) {
+                logger.info("Token bucket check, {} threads: shared CAS {} ns, shared synchronized {} ns, "
+                        + "per-client buckets {} ns", THREADS, lockFree, monitor, striped);
+            }
+        }
+    }
+
+    @Test
+    void checkDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        TokenBucket bucket = new TokenBucket(CAPACITY, REFILL_PER_SECOND, System.nanoTime());
+        long sink = 0;
+        for (int i = 0; i < CHECKS_PER_THREAD; i++) {
+            sink += bucket.tryConsume(System.nanoTime());
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < CHECKS_PER_THREAD; i++) {
+            sink += bucket.tryConsume(System.nanoTime());
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertNotEquals(Long.MIN_VALUE, sink);
+        // допускаем только служебные аллокации самого замера
+        assertTrue(allocated < 1024, () -> allocated + " bytes allocated by " + CHECKS_PER_THREAD + " checks");
+    }
+
+    private static long nanosPerCheck(LongUnaryOperator check) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(THREADS);
+        AtomicLong sink = new AtomicLong();
+        for (int t = 0; t < THREADS; t++) {
+            long thread = t;
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long local = 0;
+                for (int i = 0; i < CHECKS_PER_THREAD; i++) {
+                    local += check.applyAsLong(thread);
+                }
+                sink.addAndGet(local);
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (System.nanoTime() - started) / ((long) THREADS * CHECKS_PER_THREAD);
+    }
+
+    /** The same GCRA step behind a monitor, as a baseline for the CAS loop. */
+    private static final class LockedBucket {
+
+        private final long intervalNanos = (long) (1_000_000_000L / REFILL_PER_SECOND);
+        private final long burstNanos = intervalNanos * CAPACITY;
+        private long tat;
+
+        LockedBucket(long tat) {
+            this.tat = tat;
+        }
+
+        synchronized long tryConsume(long now) {
+            long newTat = Math.max(tat, now) + intervalNanos;
+            long debt = newTat - now;
+            if (debt > burstNanos) {
+                return -(debt - burstNanos);
+            }
+            tat = newTat;
+            return (burstNanos - debt) / intervalNanos;
+        }
+    }
+}
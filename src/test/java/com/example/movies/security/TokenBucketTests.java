@@ -0,0 +1,54 @@
+package com.example.movies.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void fullBucketAllowsBurstUpToCapacity() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(5, 1, now);
+
+        for (int expectedLeft = 4; expectedLeft >= 0; expectedLeft--) {
+            assertEquals(expectedLeft, bucket.tryConsume(now));
+        }
+        long rejected = bucket.tryConsume(now);
+        assertTrue(rejected < 0);
+        assertEquals(SECOND, -rejected, "next token after one refill interval");
+    }
+
+    @Test
+    void tokensRefillAtConfiguredRate() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(2, 2, now);
+        bucket.tryConsume(now);
+        bucket.tryConsume(now);
+        assertTrue(bucket.tryConsume(now) < 0);
+
+        now += SECOND / 2;
+        assertEquals(0, bucket.tryConsume(now));
+        assertTrue(bucket.tryConsume(now) < 0);
+
+        now += 10 * SECOND;
+        assertEquals(1, bucket.tryConsume(now), "refill is capped at capacity");
+    }
+
+    @Test
+    void bucketIsIdleOnceFullForTheIdleTimeout() {
+        TokenBucket bucket = new TokenBucket(1, 1, 0);
+        bucket.tryConsume(0);
+
+        assertFalse(bucket.isIdle(SECOND, SECOND));
+        assertTrue(bucket.isIdle(3 * SECOND, SECOND));
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0, 0));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.movies.security;
+
+import com.example.movies.model.RevokedToken;
+import com.example.movies.repository.RevokedTokenRepository;
+import com.example.movies.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TokenVersionRegistryTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+    private final TokenVersionRegistry registry = registry(userRepository, revokedTokenRepository);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void revokeAllTakesEffectOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        registry.revokeAll(7L);
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+        assertTrue(registry.isCurrent(7L, 0));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertFalse(registry.isCurrent(7L, 0));
+        assertFalse(registry.isCurrent(7L, Integer.MAX_VALUE - 1));
+        assertTrue(registry.isCurrent(8L, 0));
+    }
+
+    @Test
+    void rolledBackRevocationLeavesTokensValid() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        registry.revokeAll(7L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertTrue(registry.isCurrent(7L, 0));
+    }
+
+    @Test
+    void revokeAllWithoutTransactionAppliesAtOnceAndSkipsExistingTombstone() {
+        when(revokedTokenRepository.existsByJti("user:7")).thenReturn(true);
+
+        registry.revokeAll(7L);
+
+        verify(revokedTokenRepository, never()).save(any());
+        assertFalse(registry.isCurrent(7L, 0));
+    }
+
+    @Test
+    void bumpsAndDeletionsReachOtherNodesThroughPolling() {
+        List<RevokedToken> table = new ArrayList<>();
+        when(revokedTokenRepository.save(any(RevokedToken.class))).thenAnswer(call -> {
+            table.add(call.getArgument(0));
+            return call.getArgument(0);
+        });
+        RevokedTokenRepository sharedTable = mock(RevokedTokenRepository.class);
+        when(sharedTable.findByJtiStartingWithAndRevokedAtAfter(eq("user:"), any())).thenAnswer(call -> List.copyOf(table));
+        when(userRepository.findBumpedTokenVersions()).thenReturn(List.<Object[]>of(new Object[]{5L, 2}));
+        TokenVersionRegistry otherNode = registry(userRepository, sharedTable);
+        otherNode.load();
+        assertFalse(otherNode.isCurrent(5L, 1));
+
+        registry.bump(5L, 3);
+        registry.bump(6L, 1);
+        registry.revokeAll(7L);
+        assertTrue(otherNode.isCurrent(5L, 2));
+
+        otherNode.poll();
+        assertEquals(List.of("user:5@3", "user:6@1", "user:7"), table.stream().map(RevokedToken::getJti).toList());
+        assertFalse(otherNode.isCurrent(5L, 2));
+        assertTrue(otherNode.isCurrent(5L, 3));
+        assertFalse(otherNode.isCurrent(6L, 0));
+        assertFalse(otherNode.isCurrent(7L, 100));
+
+        // версия только растёт, удаление не отменяется
+        table.add(new RevokedToken("user:5@1", Instant.now().plusSeconds(60)));
+        table.add(new RevokedToken("user:7@9", Instant.now().plusSeconds(60)));
+        otherNode.poll();
+        assertFalse(otherNode.isCurrent(5L, 2));
+        assertFalse(otherNode.isCurrent(7L, 100));
+    }
+
+    private static TokenVersionRegistry registry(UserRepository users, RevokedTokenRepository revokedTokens) {
+        return new TokenVersionRegistry(users, revokedTokens, 3_600_000, Duration.ofSeconds(30));
+    }
+}
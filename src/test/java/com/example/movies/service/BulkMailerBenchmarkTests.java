@@ -0,0 +1,86 @@
+package com.example.movies.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of {@link BulkMailer} against the previous one-connection-per-message
+ * loop, both sending to an in-process SMTP server that answers every command
+ * after a 2 ms round trip. Runs with {@code mvn -Pbenchmarks test}.
+ */
+@Tag("benchmark")
+class BulkMailerBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkMailerBenchmarkTests.class);
+
+    private static final int RECIPIENTS = 500;
+
+    private FakeSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new FakeSmtpServer();
+        server.replyDelay(Duration.ofMillis(2));
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.port());
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void pooledConnectionsAgainstConnectionPerMessage() {
+        List<String> recipients = IntStream.range(0, RECIPIENTS)
+                .mapToObj(i -> "student" + i + "@example.com")
+                .toList();
+
+        // Прежний путь: отдельное соединение (приветствие, EHLO, QUIT) на каждое письмо, по очереди
+        long started = System.nanoTime();
+        for (String to : recipients) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(to);
+            message.setSubject("Schedule update");
+            message.setText("Hello, " + to);
+            mailSender.send(message);
+        }
+        double perMessage = rate(RECIPIENTS, System.nanoTime() - started);
+        assertEquals(RECIPIENTS, server.delivered());
+        int perMessageConnections = server.connections();
+
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(new SimpleMeterRegistry(), 5, Duration.ofSeconds(30));
+        BulkMailer bulkMailer = new BulkMailer(mailSender, breaker, new EmailTemplateEngine(), 4, 100, 0);
+        BulkMailer.MessageSpec spec = new BulkMailer.MessageSpec("Schedule update",
+                EmailTemplate.compile("Hello, {{email}}", false));
+        started = System.nanoTime();
+        BulkMailer.Report report = bulkMailer.send(recipients, spec);
+        double pooled = rate(RECIPIENTS, System.nanoTime() - started);
+
+        assertEquals(RECIPIENTS, report.sent());
+        assertEquals(2 * RECIPIENTS, server.delivered());
+        logger.info("Bulk mail to {} recipients: {} msg/s over {} connections one by one, {} msg/s over {} pooled connections",
+                RECIPIENTS, Math.round(perMessage), perMessageConnections,
+                Math.round(pooled), server.connections() - perMessageConnections);
+    }
+
+    private static double rate(int messages, long nanos) {
+        return messages * 1e9 / nanos;
+    }
+}
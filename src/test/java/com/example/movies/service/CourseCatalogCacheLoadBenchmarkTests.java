@@ -0,0 +1,215 @@
+package com.example.movies.service;
+
+import com.example.movies.event.CourseChangedEvent;
+import com.example.movies.model.Course;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of the course read endpoints with and without
+ * {@link CourseCatalogCache}: eight clients send 2000 requests per second in
+ * total, courses by id (80% of the reads hit a fifth of the catalog) and
+ * catalog pages, while a writer updates a course five times a second and
+ * publishes {@link CourseChangedEvent} as the controller does. Both runs get
+ * the same request rate; every statement sent to PostgreSQL is counted over
+ * five seconds after a warm-up, so the log compares DB queries per second.
+ *
+ * <p>Needs Docker; runs with {@code mvn -Pbenchmarks test}.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class CourseCatalogCacheLoadBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseCatalogCacheLoadBenchmarkTests.class);
+
+    private static final int COURSES = 5_000;
+    private static final int CLIENTS = 8;
+    private static final int PAGE_SIZE = 10;
+    private static final int PAGES = 20;
+    private static final int REQUESTS_PER_SECOND = 2_000;
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration RUN = Duration.ofSeconds(5);
+    private static final Duration WRITE_INTERVAL = Duration.ofMillis(200);
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("insert into courses (title, description, credit_hours) " +
+                    "select 'Course ' || g, 'Description of course ' || g, g % 6 + 1 " +
+                    "from generate_series(1, " + COURSES + ") g");
+            statement.execute("vacuum analyze");
+        }
+    }
+
+    @Test
+    void cacheCutsDatabaseQueryRate() throws Exception {
+        Result direct = run(false);
+        Result cached = run(true);
+
+        logger.info("Course reads at {} req/s, one write per {} ms: without cache {} req/s served and {} DB queries/s, "
+                        + "with cache {} req/s served and {} DB queries/s",
+                REQUESTS_PER_SECOND, WRITE_INTERVAL.toMillis(), direct.requestsPerSecond(), direct.queriesPerSecond(),
+                cached.requestsPerSecond(), cached.queriesPerSecond());
+        assertTrue(direct.requestsPerSecond() > REQUESTS_PER_SECOND * 0.9, "database kept up with the offered load");
+        assertTrue(cached.queriesPerSecond() * 3 < direct.queriesPerSecond(),
+                "cache should remove most DB queries");
+    }
+
+    private record Result(long requestsPerSecond, long queriesPerSecond) {
+    }
+
+    private static Result run(boolean useCache) throws Exception {
+        CourseCatalogCache cache = new CourseCatalogCache(new SimpleMeterRegistry(), Duration.ofMinutes(5), 10_000, 1_000);
+        List<Long> ids = new ArrayList<>(COURSES);
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("select id from courses order by id")) {
+            while (rows.next()) {
+                ids.add(rows.getLong(1));
+            }
+        }
+        AtomicLong requests = new AtomicLong();
+        AtomicLong queries = new AtomicLong();
+        long started = System.nanoTime();
+        long measureFrom = started + WARMUP.toNanos();
+        long deadline = measureFrom + RUN.toNanos();
+        long interval = 1_000_000_000L * CLIENTS / REQUESTS_PER_SECOND;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            long offset = interval * c / CLIENTS;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try (Connection connection = connect();
+                     PreparedStatement byId = connection.prepareStatement(
+                             "select id, title, description, credit_hours from courses where id = ?");
+                     PreparedStatement page = connection.prepareStatement(
+                             "select id, title from courses order by title limit ? offset ?");
+                     PreparedStatement count = connection.prepareStatement("select count(*) from courses")) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    // Открытая модель: запросы идут по расписанию, а не сразу после ответа
+                    long next = started + offset;
+                    while (next < deadline) {
+                        LockSupport.parkNanos(next - System.nanoTime());
+                        next += interval;
+                        if (random.nextInt(100) < 85) {
+                            // 80% чтений приходится на пятую часть каталога
+                            int index = random.nextInt(100) < 80 ? random.nextInt(COURSES / 5) : random.nextInt(COURSES);
+                            Long id = ids.get(index);
+                            Optional<Course> course = useCache
+                                    ? cache.findById(id, key -> loadCourse(byId, key, queries))
+                                    : loadCourse(byId, id, queries);
+                            assertTrue(course.isPresent());
+                        } else {
+                            int number = random.nextInt(PAGES);
+                            Map<String, Object> response = useCache
+                                    ? cache.page(number + ":" + PAGE_SIZE + ":title: ASC:EXACT",
+                                            () -> loadPage(page, count, number, queries))
+                                    : loadPage(page, count, number, queries);
+                            assertEquals(COURSES, ((Number) response.get("totalItems")).intValue());
+                        }
+                        requests.incrementAndGet();
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+
+        // Запись как в updateCourse: UPDATE, затем событие после коммита
+        try (Connection connection = connect();
+             PreparedStatement update = connection.prepareStatement("update courses set description = ? where id = ?")) {
+            int writes = 0;
+            long requestsBefore = -1;
+            long queriesBefore = -1;
+            while (System.nanoTime() < deadline) {
+                if (requestsBefore < 0 && System.nanoTime() >= measureFrom) {
+                    requestsBefore = requests.get();
+                    queriesBefore = queries.get();
+                }
+                Thread.sleep(WRITE_INTERVAL);
+                Long id = ids.get(writes++ % ids.size());
+                update.setString(1, "Updated " + writes);
+                update.setLong(2, id);
+                update.executeUpdate();
+                Course course = new Course();
+                ReflectionTestUtils.setField(course, "id", id);
+                cache.onCourseChanged(CourseChangedEvent.updated(course, null));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long seconds = RUN.toSeconds();
+            return new Result((requests.get() - requestsBefore) / seconds, (queries.get() - queriesBefore) / seconds);
+        }
+    }
+
+    private static Optional<Course> loadCourse(PreparedStatement byId, Long id, AtomicLong queries) {
+        try {
+            queries.incrementAndGet();
+            byId.setLong(1, id);
+            try (ResultSet row = byId.executeQuery()) {
+                if (!row.next()) {
+                    return Optional.empty();
+                }
+                Course course = new Course();
+                ReflectionTestUtils.setField(course, "id", row.getLong(1));
+                course.setTitle(row.getString(2));
+                course.setDescription(row.getString(3));
+                course.setCreditHours(row.getInt(4));
+                return Optional.of(course);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Страница с точным total, как PagedQueries в режиме EXACT: выборка и count
+    private static Map<String, Object> loadPage(PreparedStatement page, PreparedStatement count, int number,
+                                                AtomicLong queries) {
+        try {
+            queries.addAndGet(2);
+            List<Map<String, Object>> items = new ArrayList<>(PAGE_SIZE);
+            page.setInt(1, PAGE_SIZE);
+            page.setInt(2, number * PAGE_SIZE);
+            try (ResultSet rows = page.executeQuery()) {
+                while (rows.next()) {
+                    items.add(Map.of("id", rows.getLong(1), "title", rows.getString(2)));
+                }
+            }
+            try (ResultSet total = count.executeQuery()) {
+                total.next();
+                return Map.of("items", items, "currentPage", number, "totalItems", total.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.movies.service;
+
+import com.example.movies.dto.CourseSearchHit;
+import com.example.movies.event.CourseChangedEvent;
+import com.example.movies.repository.CourseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Substring search over 50k courses: {@link CourseSearchIndex} against the SQL
+ * it replaces, {@code lower(col) like '%q%'} on title, description and teacher
+ * username with the V3 trigram indexes in place and fresh statistics. Queries
+ * mix a common word, a rare course number and a teacher name fragment.
+ *
+ * <p>Needs Docker; runs with {@code mvn -Pbenchmarks test}.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class CourseSearchBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseSearchBenchmarkTests.class);
+
+    private static final int COURSES = 50_000;
+    private static final int TEACHERS = 10_000;
+    private static final int LIMIT = 20;
+    private static final int ROUNDS = 200;
+
+    private static final String LIKE_SQL = "select c.id from courses c left join users t on t.id = c.teacher_id " +
+            "where lower(c.title) like ? or lower(c.description) like ? or lower(t.username) like ? " +
+            "order by c.id limit " + LIMIT;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final CourseSearchIndex index = new CourseSearchIndex(mock(CourseRepository.class),
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+    private static final List<String> queries = new ArrayList<>();
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("insert into users (username, password, email) " +
+                    "select 'teacher_' || substr(md5(g::text), 1, 10), 'x', 't' || g || '@example.com' " +
+                    "from generate_series(1, " + TEACHERS + ") g");
+            // названия из словаря, как в реальном каталоге: общие слова встречаются часто, номера — один раз
+            statement.execute("insert into courses (title, description, credit_hours, teacher_id) " +
+                    "select (array['Linear','Applied','Abstract','Discrete','Advanced','Intro to'])[1 + g % 6] || ' ' || " +
+                    "(array['Algebra','Databases','Physics','Chemistry','Statistics','Networks','Compilers'])[1 + g / 6 % 7] || " +
+                    "' ' || g, 'Lectures and labs, module ' || g % 40, g % 6 + 1, t.id " +
+                    "from generate_series(1, " + COURSES + ") g " +
+                    "join (select id, row_number() over (order by id) - 1 as n from users) t on t.n = g % " + TEACHERS);
+            statement.execute("vacuum analyze");
+
+            try (ResultSet rows = statement.executeQuery("select c.id, c.title, c.description, c.credit_hours, " +
+                    "t.id, t.username from courses c left join users t on t.id = c.teacher_id")) {
+                while (rows.next()) {
+                    index.onCourseChanged(CourseChangedEvent.created(rows.getLong(1), rows.getString(2),
+                            rows.getString(3), rows.getInt(4), rows.getLong(5), rows.getString(6)));
+                }
+            }
+            try (ResultSet teacher = statement.executeQuery("select username from users order by id offset 4242 limit 1")) {
+                teacher.next();
+                queries.add("statistics");
+                queries.add(String.valueOf(COURSES - 7));
+                queries.add(teacher.getString(1).substring(8, 14));
+            }
+        }
+    }
+
+    @Test
+    void inMemoryIndexAgainstSqlLike() throws SQLException {
+        try (Connection connection = connect(); PreparedStatement like = connection.prepareStatement(LIKE_SQL)) {
+            for (String query : queries) {
+                List<Long> sqlIds = sqlSearch(like, query);
+                List<Long> indexIds = index.search(query, LIMIT).stream().map(CourseSearchHit::id).toList();
+                assertFalse(indexIds.isEmpty(), () -> "no index hits for '" + query + "'");
+                assertEquals(sqlIds.size(), indexIds.size(), () -> "hit count for '" + query + "'");
+
+                for (int i = 0; i < ROUNDS; i++) {
+                    sqlSearch(like, query);
+                    index.search(query, LIMIT);
+                }
+                long started = System.nanoTime();
+                for (int i = 0; i < ROUNDS; i++) {
+                    sqlSearch(like, query);
+                }
+                long sqlMicros = (System.nanoTime() - started) / ROUNDS / 1000;
+                started = System.nanoTime();
+                for (int i = 0; i < ROUNDS; i++) {
+                    index.search(query, LIMIT);
+                }
+                long indexMicros = (System.nanoTime() - started) / ROUNDS / 1000;
+                logger.info("Course search '{}' over {} courses: SQL LIKE {} us, in-memory index {} us",
+                        query, COURSES, sqlMicros, indexMicros);
+            }
+        }
+    }
+
+    private static List<Long> sqlSearch(PreparedStatement like, String query) throws SQLException {
+        String pattern = "%" + query.toLowerCase() + "%";
+        like.setString(1, pattern);
+        like.setString(2, pattern);
+        like.setString(3, pattern);
+        List<Long> ids = new ArrayList<>(LIMIT);
+        try (ResultSet rows = like.executeQuery()) {
+            while (rows.next()) {
+                ids.add(rows.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
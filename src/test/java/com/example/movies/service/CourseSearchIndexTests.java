@@ -0,0 +1,110 @@
+package com.example.movies.service;
+
+import com.example.movies.dto.CourseSearchHit;
+import com.example.movies.event.CourseChangedEvent;
+import com.example.movies.event.UserChangedEvent;
+import com.example.movies.repository.CourseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CourseSearchIndexTests {
+
+    private final CourseSearchIndex index = new CourseSearchIndex(mock(CourseRepository.class),
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
+    @Test
+    void findsSubstringsCaseInsensitively() {
+        put(1, "Linear Algebra", "Vectors and matrices", 7, "ivanov");
+        put(2, "Databases", "SQL and indexes", 8, "petrov");
+
+        assertEquals(List.of(1L), ids(index.search("ALGEB", 10)));
+        assertEquals(List.of(2L), ids(index.search("index", 10)));
+        assertEquals(List.of(2L), ids(index.search("petr", 10)));
+        assertEquals(List.of(), index.search("algebras", 10));
+        // короче триграммы — проверяются все курсы
+        assertEquals(List.of(1L), ids(index.search("li", 10)));
+        assertEquals(List.of(), index.search("  ", 10));
+    }
+
+    @Test
+    void replacingOrDeletingACourseDropsItsOldText() {
+        put(1, "Physics", "Mechanics", 7, "ivanov");
+        put(1, "Chemistry", "Reactions", 7, "ivanov");
+
+        assertEquals(List.of(), index.search("physics", 10));
+        assertEquals(List.of(), index.search("mechan", 10));
+        CourseSearchHit hit = index.search("chem", 10).get(0);
+        assertEquals("Chemistry", hit.title());
+        assertEquals("Reactions", hit.description());
+
+        index.onCourseChanged(CourseChangedEvent.deleted(1L));
+        assertEquals(List.of(), index.search("chem", 10));
+        assertEquals(List.of(), index.search("ivanov", 10));
+    }
+
+    @Test
+    void teacherRenameAndDeletionRewriteTheirCourses() {
+        put(1, "Calculus", null, 7, "petrov");
+        put(2, "Topology", null, 7, "petrov");
+        put(3, "History", null, 8, "orlov");
+
+        index.onUserChanged(UserChangedEvent.updated(7L, "petrov", "sidorov"));
+        assertEquals(List.of(), index.search("petrov", 10));
+        List<CourseSearchHit> hits = index.search("sidorov", 10);
+        assertEquals(List.of(1L, 2L), ids(hits));
+        assertTrue(hits.stream().allMatch(hit -> "sidorov".equals(hit.teacherUsername())));
+
+        // другие события пользователя индекс не трогают
+        index.onUserChanged(UserChangedEvent.updated(7L, "sidorov", "sidorov"));
+        index.onUserChanged(UserChangedEvent.created(9L, "orlov"));
+        assertEquals(List.of(1L, 2L), ids(index.search("sidorov", 10)));
+
+        index.onUserChanged(UserChangedEvent.deleted(7L, "sidorov"));
+        assertEquals(List.of(), index.search("sidorov", 10));
+        CourseSearchHit orphan = index.search("calculus", 10).get(0);
+        assertNull(orphan.teacherId());
+        assertNull(orphan.teacherUsername());
+        assertEquals(List.of(3L), ids(index.search("orlov", 10)));
+    }
+
+    @Test
+    void ranksTitleBeforeTeacherBeforeDescriptionAndPrefersWordStarts() {
+        put(1, "Intro to statistics", "Mostly data analysis", 7, "ivanov");
+        put(2, "Big Data", null, 7, "ivanov");
+        put(3, "Data", null, 7, "ivanov");
+        put(4, "Databases", null, 7, "ivanov");
+        put(5, "Metadata", null, 7, "ivanov");
+        put(6, "Networks", null, 8, "dataman");
+        put(7, "Compilers", "data flow", 7, "ivanov");
+
+        List<CourseSearchHit> hits = index.search("data", 10);
+        assertEquals(List.of(3L, 4L, 2L, 5L, 6L, 7L, 1L), ids(hits));
+        assertEquals(List.of(200, 150, 125, 100, 90, 30, 25), hits.stream().map(CourseSearchHit::score).toList());
+        assertEquals(List.of(3L, 4L), ids(index.search("data", 2)));
+        assertEquals(List.of(), index.search("data", 0));
+    }
+
+    @Test
+    void equalScoresPreferShorterTitlesThenLowerIds() {
+        put(3, "Art history", null, 7, "ivanov");
+        put(2, "Art", null, 7, "ivanov");
+        put(1, "Art theory", null, 7, "ivanov");
+        put(4, "Art theory", null, 7, "ivanov");
+
+        assertEquals(List.of(2L, 1L, 4L, 3L), ids(index.search("art", 10)));
+    }
+
+    private void put(long id, String title, String description, long teacherId, String teacherUsername) {
+        index.onCourseChanged(CourseChangedEvent.created(id, title, description, 3, teacherId, teacherUsername));
+    }
+
+    private static List<Long> ids(List<CourseSearchHit> hits) {
+        return hits.stream().map(CourseSearchHit::id).toList();
+    }
+}
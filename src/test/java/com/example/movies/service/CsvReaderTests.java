@@ -0,0 +1,59 @@
+package com.example.movies.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTests {
+
+    @Test
+    void splitsPlainFieldsAndKeepsEmptyOnes() throws IOException {
+        try (CsvReader reader = reader("a,b,c\r\n,x,\n")) {
+            assertEquals(List.of("a", "b", "c"), reader.next());
+            assertEquals(List.of("", "x", ""), reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void quotedFieldsMayContainCommasAndEscapedQuotes() throws IOException {
+        try (CsvReader reader = reader("\"Smith, John\",\"say \"\"hi\"\"\",\"\"\n")) {
+            assertEquals(List.of("Smith, John", "say \"hi\"", ""), reader.next());
+        }
+    }
+
+    @Test
+    void quotedFieldsMaySpanLinesAndLineNumbersFollowTheRecordStart() throws IOException {
+        try (CsvReader reader = reader("h1,h2\n\"line one\nline two\",x\nlast,y\n")) {
+            reader.next();
+            assertEquals(List.of("line one\nline two", "x"), reader.next());
+            assertEquals(2, reader.line());
+            assertEquals(List.of("last", "y"), reader.next());
+            assertEquals(4, reader.line());
+        }
+    }
+
+    @Test
+    void leadingByteOrderMarkIsDropped() throws IOException {
+        try (CsvReader reader = reader("﻿username,email\n")) {
+            assertEquals(List.of("username", "email"), reader.next());
+        }
+    }
+
+    @Test
+    void unterminatedQuoteIsReportedWithItsLine() throws IOException {
+        try (CsvReader reader = reader("ok\n\"never closed\n")) {
+            reader.next();
+            IOException error = assertThrows(IOException.class, reader::next);
+            assertTrue(error.getMessage().contains("2"), error.getMessage());
+        }
+    }
+
+    private static CsvReader reader(String csv) {
+        return new CsvReader(new StringReader(csv));
+    }
+}
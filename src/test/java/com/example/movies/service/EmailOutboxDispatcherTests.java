@@ -0,0 +1,56 @@
+package com.example.movies.service;
+
+import com.example.movies.model.EmailOutboxMessage;
+import com.example.movies.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EmailOutboxDispatcherTests {
+
+    @Test
+    void scheduledTickReturnsWhileSmtpIsBusyAndDoesNotStartASecondDrain() throws Exception {
+        EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+        when(repository.lockDue(any(), anyInt()))
+                .thenReturn(List.of(new EmailOutboxMessage("a@example.com", "s", "b", false)))
+                .thenReturn(List.of());
+        SmtpCircuitBreaker circuitBreaker = mock(SmtpCircuitBreaker.class);
+        when(circuitBreaker.allowsRequests()).thenReturn(true);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EmailService emailService = mock(EmailService.class);
+        doAnswer(call -> {
+            sending.countDown();
+            release.await();
+            return null;
+        }).when(emailService).sendSimpleEmail(anyString(), anyString(), anyString());
+
+        EmailOutboxDispatcher dispatcher = new EmailOutboxDispatcher(repository, emailService, circuitBreaker,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 1, 8, 8,
+                Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofHours(1));
+        try {
+            dispatcher.drain();
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            // тик планировщика вернулся, хотя письмо ещё отправляется
+            dispatcher.drain();
+            verify(repository, times(1)).lockDue(any(), anyInt());
+
+            release.countDown();
+            verify(repository, timeout(5000)).save(any(EmailOutboxMessage.class));
+            verify(repository, timeout(5000).times(2)).lockDue(any(), anyInt());
+            verify(repository, timeout(5000)).countByStatus(EmailOutboxMessage.Status.PENDING);
+        } finally {
+            release.countDown();
+            dispatcher.shutdown();
+        }
+    }
+}
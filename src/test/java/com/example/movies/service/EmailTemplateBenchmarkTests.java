@@ -0,0 +1,67 @@
+package com.example.movies.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Render cost of the enrollment-welcome message for many recipients: the
+ * compiled template through {@link EmailTemplateEngine#renderAll} against
+ * the string concatenation and {@code String.format} it replaced.
+ * Runs with {@code mvn -Pbenchmarks test}.
+ */
+@Tag("benchmark")
+class EmailTemplateBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateBenchmarkTests.class);
+
+    private static final int RECIPIENTS = 100_000;
+    private static final int ROUNDS = 10;
+
+    @Test
+    void compiledTemplateAgainstConcatenationAndFormat() {
+        EmailTemplateEngine engine = new EmailTemplateEngine();
+        EmailTemplate template = engine.get("enrollment-welcome");
+        List<Map<String, String>> recipients = IntStream.range(0, RECIPIENTS)
+                .mapToObj(i -> Map.of("username", "student" + i, "courseTitle", "Linear Algebra " + i % 100))
+                .toList();
+
+        Function<List<Map<String, String>>, List<String>> concatenation = batch -> batch.stream()
+                .map(r -> "Здравствуйте, " + r.get("username") + "! Вы были успешно зачислены на курс: " + r.get("courseTitle"))
+                .toList();
+        Function<List<Map<String, String>>, List<String>> format = batch -> batch.stream()
+                .map(r -> String.format("Здравствуйте, %s! Вы были успешно зачислены на курс: %s",
+                        r.get("username"), r.get("courseTitle")))
+                .toList();
+        Function<List<Map<String, String>>, List<String>> compiled = batch -> engine.renderAll(template, batch);
+
+        assertEquals(concatenation.apply(recipients), compiled.apply(recipients));
+        assertEquals(format.apply(recipients), compiled.apply(recipients));
+
+        logger.info("Rendering {} enrollment mails: concatenation {} ns, String.format {} ns, compiled template {} ns per mail",
+                RECIPIENTS, nanosPerMail(concatenation, recipients), nanosPerMail(format, recipients),
+                nanosPerMail(compiled, recipients));
+    }
+
+    private static long nanosPerMail(Function<List<Map<String, String>>, List<String>> render,
+                                     List<Map<String, String>> recipients) {
+        for (int i = 0; i < ROUNDS; i++) {
+            render.apply(recipients);
+        }
+        long started = System.nanoTime();
+        int rendered = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            rendered += render.apply(recipients).size();
+        }
+        assertEquals(ROUNDS * RECIPIENTS, rendered);
+        return (System.nanoTime() - started) / rendered;
+    }
+}
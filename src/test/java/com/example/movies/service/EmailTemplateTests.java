@@ -0,0 +1,64 @@
+package com.example.movies.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplateTests {
+
+    @Test
+    void substitutesVariablesIncludingSurroundingWhitespace() {
+        EmailTemplate template = EmailTemplate.compile("Hi {{ username }}, welcome to {{courseTitle}}!", false);
+
+        assertEquals("Hi bob, welcome to Algebra!", template.render(Map.of("username", "bob", "courseTitle", "Algebra")));
+    }
+
+    @Test
+    void htmlTemplatesEscapeValuesButNotLiterals() {
+        EmailTemplate template = EmailTemplate.compile("<b>{{name}}</b>", true);
+
+        assertEquals("<b>&lt;script&gt;&amp;&quot;&#39;</b>", template.render(Map.of("name", "<script>&\"'")));
+        assertTrue(template.isHtml());
+    }
+
+    @Test
+    void textTemplatesDoNotEscape() {
+        assertEquals("a<b", EmailTemplate.compile("{{v}}", false).render(Map.of("v", "a<b")));
+    }
+
+    @Test
+    void unknownPlaceholdersAreKeptLiterally() {
+        EmailTemplate template = EmailTemplate.compile("To {{email}}: use {{ code }} in {{}}", false);
+
+        assertEquals("To a@b.c: use {{ code }} in {{}}", template.render(Map.of("email", "a@b.c")));
+    }
+
+    @Test
+    void knownVariableWithNullValueRendersEmpty() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("name", null);
+
+        assertEquals("Hi !", EmailTemplate.compile("Hi {{name}}!", false).render(values));
+    }
+
+    @Test
+    void unclosedPlaceholderIsLiteralText() {
+        assertEquals("Price {{ 5", EmailTemplate.compile("Price {{ 5", false).render(Map.of()));
+    }
+
+    @Test
+    void renderAllRendersEachRecipientIndependently() {
+        EmailTemplate template = EmailTemplate.compile("Hi {{name}}, {{email}}", false);
+
+        List<String> rendered = new EmailTemplateEngine().renderAll(template, List.of(
+                Map.of("name", "a", "email", "a@x.io"),
+                Map.of("name", "bob", "email", "bob@x.io"),
+                Map.of("email", "c@x.io")));
+
+        assertEquals(List.of("Hi a, a@x.io", "Hi bob, bob@x.io", "Hi {{name}}, c@x.io"), rendered);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.movies.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process SMTP server that accepts every message, or accepts
+ * connections and never answers. An optional reply delay stands in for the
+ * network round trip of each SMTP command.
+ */
+final class FakeSmtpServer implements AutoCloseable {
+
+    private final ServerSocket socket = new ServerSocket(0);
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger delivered = new AtomicInteger();
+    private volatile boolean hang;
+    private volatile Duration replyDelay = Duration.ZERO;
+
+    FakeSmtpServer() throws IOException {
+        Thread.ofPlatform().daemon().start(this::acceptLoop);
+    }
+
+    int port() {
+        return socket.getLocalPort();
+    }
+
+    void hang(boolean hang) {
+        this.hang = hang;
+    }
+
+    void replyDelay(Duration replyDelay) {
+        this.replyDelay = replyDelay;
+    }
+
+    int connections() {
+        return connections.get();
+    }
+
+    int delivered() {
+        return delivered.get();
+    }
+
+    private void acceptLoop() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                connections.incrementAndGet();
+                Thread.ofPlatform().daemon().start(() -> serve(client));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client) {
+            if (hang) {
+                // держим соединение открытым и молчим
+                while (client.getInputStream().read() != -1) {
+                }
+                return;
+            }
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+            PrintWriter out = new PrintWriter(client.getOutputStream(), true, StandardCharsets.US_ASCII);
+            reply(out, "220 fake ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("DATA")) {
+                    reply(out, "354 end with .");
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                    }
+                    delivered.incrementAndGet();
+                    reply(out, "250 queued");
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 bye");
+                    return;
+                } else {
+                    reply(out, "250 ok");
+                }
+            }
+        } catch (IOException e) {
+            // клиент отключился
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reply(PrintWriter out, String line) throws InterruptedException {
+        if (!replyDelay.isZero()) {
+            Thread.sleep(replyDelay);
+        }
+        out.print(line + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.movies.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.SendFailedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpCircuitBreakerTests {
+
+    private FakeSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new FakeSmtpServer();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.port());
+        Properties properties = new Properties();
+        properties.put("mail.smtp.connectiontimeout", "500");
+        properties.put("mail.smtp.timeout", "500");
+        properties.put("mail.smtp.writetimeout", "500");
+        mailSender.setJavaMailProperties(properties);
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void stalledServerTimesOutAndOpensCircuit() {
+        server.hang(true);
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(new SimpleMeterRegistry(), 2, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 2; i++) {
+            long started = System.nanoTime();
+            assertThrows(MailException.class, () -> breaker.run(() -> mailSender.send(message())));
+            assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(Duration.ofSeconds(5)) < 0,
+                    "send must be bounded by the socket timeout");
+        }
+        assertEquals(SmtpCircuitBreaker.State.OPEN, breaker.getState());
+
+        int connections = server.connections();
+        long started = System.nanoTime();
+        assertThrows(SmtpCircuitBreaker.CircuitOpenException.class, () -> breaker.run(() -> mailSender.send(message())));
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(Duration.ofMillis(100)) < 0);
+        assertEquals(connections, server.connections(), "open circuit must not reach the server");
+    }
+
+    @Test
+    void probeAfterOpenDurationClosesCircuitWhenServerRecovers() throws InterruptedException {
+        server.hang(true);
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(new SimpleMeterRegistry(), 1, Duration.ofMillis(200));
+
+        assertThrows(MailException.class, () -> breaker.run(() -> mailSender.send(message())));
+        assertEquals(SmtpCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowsRequests());
+
+        server.hang(false);
+        Thread.sleep(250);
+        assertTrue(breaker.allowsRequests());
+        breaker.run(() -> mailSender.send(message()));
+        assertEquals(SmtpCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, server.delivered());
+    }
+
+    @Test
+    void failedProbeReopensCircuit() throws InterruptedException {
+        server.hang(true);
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(new SimpleMeterRegistry(), 1, Duration.ofMillis(200));
+
+        assertThrows(MailException.class, () -> breaker.run(() -> mailSender.send(message())));
+        Thread.sleep(250);
+        assertThrows(MailException.class, () -> breaker.run(() -> mailSender.send(message())));
+        assertEquals(SmtpCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowsRequests());
+    }
+
+    @Test
+    void rejectedRecipientDoesNotOpenCircuit() {
+        SmtpCircuitBreaker breaker = new SmtpCircuitBreaker(new SimpleMeterRegistry(), 1, Duration.ofMinutes(1));
+
+        assertThrows(SendFailedException.class, () -> breaker.run(() -> {
+            throw new SendFailedException("550 mailbox unavailable");
+        }));
+        assertEquals(SmtpCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private static SimpleMailMessage message() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo("student@example.com");
+        message.setSubject("test");
+        message.setText("test");
+        return message;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.movies.service;
+
+import com.example.movies.dto.StudentSummary;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Footprint and lookup cost of a suggest snapshot with one million students,
+ * the figures quoted in the {@link StudentSuggestIndex} javadoc.
+ * Runs with {@code mvn -Pbenchmarks test}.
+ */
+@Tag("benchmark")
+class StudentSuggestIndexBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentSuggestIndexBenchmarkTests.class);
+
+    @Test
+    void footprintAndLookupCostOfOneMillionStudents() {
+        int students = 1_000_000;
+        StudentSuggestIndex.Snapshot.Builder builder = new StudentSuggestIndex.Snapshot.Builder();
+        for (int i = 0; i < students; i++) {
+            // 16-символьные имена и 25-символьные адреса
+            builder.add(new StudentSummary((long) i, String.format("student-%08d", i),
+                    String.format("s%08d@uni-mail.edu.ru", i)));
+        }
+        StudentSuggestIndex.Snapshot snapshot = builder.build();
+
+        long textBytes = (long) students * (16 + 1 + 25);
+        assertEquals((long) students * 20 + Integer.BYTES + textBytes, snapshot.sizeInBytes());
+
+        int lookups = 100_000;
+        for (int i = 0; i < lookups; i++) {
+            snapshot.usernameMatches(String.format("student-%06d", i % 10_000), Set.of(), 10);
+        }
+        long started = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            found += snapshot.usernameMatches(String.format("student-%06d", i % 10_000), Set.of(), 10).size();
+        }
+        long elapsed = System.nanoTime() - started;
+        assertEquals(lookups * 10, found);
+        logger.info("Student suggest snapshot: {} students, {} MB, {} ns per 10-result lookup",
+                students, snapshot.sizeInBytes() / 1_000_000, elapsed / lookups);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.movies.service;
+
+import com.example.movies.dto.StudentSummary;
+import com.example.movies.event.UserChangedEvent;
+import com.example.movies.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StudentSuggestIndexTests {
+
+    @Test
+    void prefixMatchesAreBoundedByThePrefixAndSorted() {
+        StudentSuggestIndex.Snapshot snapshot = snapshot(
+                student(1, "Bob", "bob@example.com"),
+                student(2, "alice", "zed@example.com"),
+                student(3, "Alina", "alina@example.com"),
+                student(4, "alb", "b@example.com"),
+                student(5, "carol", "carol@example.com"));
+
+        assertEquals(List.of(4L, 2L, 3L), ids(snapshot.usernameMatches("al", Set.of(), 10)));
+        assertEquals(List.of(2L, 3L), ids(snapshot.usernameMatches("ali", Set.of(), 10)));
+        assertEquals(List.of(4L), ids(snapshot.usernameMatches("al", Set.of(), 1)));
+        assertEquals(List.of(5L), ids(snapshot.usernameMatches("c", Set.of(), 10)));
+        assertEquals(List.of(), snapshot.usernameMatches("d", Set.of(), 10));
+        assertEquals(List.of(), snapshot.usernameMatches("0", Set.of(), 10));
+        assertEquals(List.of(4L, 1L), ids(snapshot.emailMatches("b", Set.of(), 10)));
+        assertEquals("Alina", snapshot.usernameMatches("alin", Set.of(), 10).get(0).username());
+    }
+
+    @Test
+    void tombstonedRowsAreSkippedWithoutShorteningTheResult() {
+        StudentSuggestIndex.Snapshot snapshot = snapshot(
+                student(1, "ann", "ann@example.com"),
+                student(2, "anna", "anna@example.com"),
+                student(3, "anne", "anne@example.com"));
+
+        assertEquals(List.of(1L, 3L), ids(snapshot.usernameMatches("ann", Set.of(2L), 2)));
+    }
+
+    @Test
+    void deltaMergesWithSnapshotAndHidesOutdatedRows() throws InterruptedException {
+        Map<Long, StudentSummary> db = new HashMap<>();
+        db.put(1L, student(1, "anna", "anna@example.com"));
+        db.put(2L, student(2, "boris", "boris@example.com"));
+        db.put(3L, student(3, "anton", "anton@example.com"));
+        StudentSuggestIndex index = index(db);
+
+        db.put(2L, student(2, "andrey", "boris@example.com"));
+        index.onUserChanged(UserChangedEvent.updated(2L, "boris", "andrey"));
+        db.put(4L, student(4, "alla", "alla@example.com"));
+        index.onUserChanged(UserChangedEvent.created(4L, "alla"));
+        db.remove(3L);
+        index.onUserChanged(UserChangedEvent.deleted(3L, "anton"));
+
+        assertEquals(List.of(4L, 2L, 1L), ids(index.suggest("A", 10)));
+        assertEquals(List.of(), index.suggest("bo", 10).stream()
+                .filter(s -> s.username().equals("boris")).toList());
+        assertEquals(List.of(2L), ids(index.suggest("boris@", 10)));
+        assertEquals(List.of(4L, 2L), ids(index.suggest("a", 2)));
+    }
+
+    @Test
+    void sizeCountsFixedBytesPerStudentPlusText() {
+        StudentSuggestIndex.Snapshot snapshot = snapshot(
+                student(1, "anna", "anna@example.com"),
+                student(2, "boris", "b@example.com"));
+
+        long textBytes = (4 + 1 + 16) + (5 + 1 + 13);
+        assertEquals(2 * 20 + Integer.BYTES + textBytes, snapshot.sizeInBytes());
+    }
+
+    private static StudentSuggestIndex index(Map<Long, StudentSummary> db) throws InterruptedException {
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.streamSummariesByRole(anyString()))
+                .thenAnswer(call -> db.values().stream().sorted(Comparator.comparing(StudentSummary::id)));
+        when(repository.findSummariesByRoleAndIdIn(anyString(), any())).thenAnswer(call -> {
+            Collection<Long> ids = call.getArgument(1);
+            return ids.stream().map(db::get).filter(Objects::nonNull).toList();
+        });
+        StudentSuggestIndex index = new StudentSuggestIndex(repository, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), 10_000);
+        index.onStartup();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!index.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(index.isReady());
+        return index;
+    }
+
+    private static StudentSuggestIndex.Snapshot snapshot(StudentSummary... students) {
+        StudentSuggestIndex.Snapshot.Builder builder = new StudentSuggestIndex.Snapshot.Builder();
+        Stream.of(students).forEach(builder::add);
+        return builder.build();
+    }
+
+    private static StudentSummary student(long id, String username, String email) {
+        return new StudentSummary(id, username, email);
+    }
+
+    private static List<Long> ids(List<StudentSummary> students) {
+        return students.stream().map(StudentSummary::id).toList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.movies.service;
+
+import com.example.movies.event.UserChangedEvent;
+import com.example.movies.model.User;
+import com.example.movies.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Username lookups issued while 100k students are onboarded one by one
+ * through the register/createStudent path ({@link UsernameBloomFilter#exists},
+ * then the insert event), on top of 50k existing users with 2% of the new
+ * names already taken. The same loop runs once before the first scan has
+ * completed, when every name has to be looked up, and once with the filter
+ * built. The repository is a counting stand-in, so the figures are query
+ * counts, not latencies. Runs with {@code mvn -Pbenchmarks test}.
+ */
+@Tag("benchmark")
+class UsernameBloomFilterBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameBloomFilterBenchmarkTests.class);
+
+    private static final int EXISTING = 50_000;
+    private static final int IMPORTED = 100_000;
+    private static final int TAKEN_EVERY = 50;
+
+    @Test
+    void lookupsDuringOneHundredThousandUserImport() throws InterruptedException {
+        int withoutFilter = importAndCountLookups(false);
+        int withFilter = importAndCountLookups(true);
+
+        int taken = IMPORTED / TAKEN_EVERY;
+        assertEquals(IMPORTED, withoutFilter);
+        assertTrue(withFilter >= taken);
+        // ложные срабатывания сверх настоящих совпадений — не больше 2% новых имён
+        assertTrue(withFilter < taken + IMPORTED * 0.02, () -> withFilter + " lookups with the filter");
+        logger.info("Importing {} users over {} existing: {} username lookups without the Bloom filter, {} with it "
+                + "({} names taken, {} false positives)", IMPORTED, EXISTING, withoutFilter, withFilter,
+                taken, withFilter - taken);
+    }
+
+    private static int importAndCountLookups(boolean built) throws InterruptedException {
+        Set<String> table = new HashSet<>();
+        IntStream.range(0, EXISTING).forEach(i -> table.add("existing" + i));
+        AtomicInteger lookups = new AtomicInteger();
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.count()).thenAnswer(invocation -> (long) table.size());
+        when(userRepository.streamAllUsernames()).thenAnswer(invocation -> Set.copyOf(table).stream());
+        when(userRepository.findByUsername(anyString())).thenAnswer(invocation -> {
+            lookups.incrementAndGet();
+            return table.contains(invocation.<String>getArgument(0)) ? new User() : null;
+        });
+        UsernameBloomFilter filter = new UsernameBloomFilter(userRepository, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), 1_000_000, 0.01, 0.2);
+        if (built) {
+            filter.onStartup();
+            awaitFirstScan(filter);
+        }
+
+        for (int i = 0; i < IMPORTED; i++) {
+            // каждое 50-е имя уже занято существующим пользователем
+            String username = i % TAKEN_EVERY == 0 ? "existing" + i % EXISTING : "student" + i;
+            if (!filter.exists(username)) {
+                table.add(username);
+                filter.onUserChanged(UserChangedEvent.created((long) i, username));
+            }
+        }
+        return lookups.get();
+    }
+
+    private static void awaitFirstScan(UsernameBloomFilter filter) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (!filter.mightContain("probe-" + i)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Bloom filter was not built");
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.movies.service;
+
+import com.example.movies.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class UsernameBloomFilterTests {
+
+    @Test
+    void addedKeysAreNeverReportedAbsent() {
+        UsernameBloomFilter.Bits bits = new UsernameBloomFilter.Bits(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            bits.put("user" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(bits.mightContain("user" + i), "false negative for user" + i);
+        }
+        assertEquals(100_000, bits.count());
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfiguredRate() {
+        UsernameBloomFilter.Bits bits = new UsernameBloomFilter.Bits(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            bits.put("user" + i);
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (bits.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < probes * 0.02, "false positive rate too high: " + falsePositives);
+    }
+
+    @Test
+    void everyNameMightExistUntilTheFirstScanCompletes() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(mock(UserRepository.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 1000, 0.01, 0.2);
+
+        filter.add("alice");
+        assertTrue(filter.mightContain("alice"));
+        assertTrue(filter.mightContain("anyone"));
+    }
+}
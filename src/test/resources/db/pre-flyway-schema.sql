@@ -0,0 +1,72 @@
+-- Схема базы до перехода на Flyway: то, что ddl-auto=update создавал по сущностям базового коммита
+-- (IDENTITY-ключи, без token_version и без таблиц отзыва токенов и почты), и немного данных.
+
+create table roles (
+    id bigint generated by default as identity,
+    name varchar(255),
+    primary key (id)
+);
+alter table if exists roles add constraint UKofx66keruapi6vyqpv6f2or37 unique (name);
+
+create table users (
+    id bigint generated by default as identity,
+    email varchar(255) not null,
+    password varchar(255),
+    username varchar(255),
+    primary key (id)
+);
+alter table if exists users add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+alter table if exists users add constraint UKr43af9ap4edm43mmtq01oddj6 unique (username);
+
+create table users_roles (
+    user_id bigint not null,
+    role_id bigint not null,
+    primary key (user_id, role_id)
+);
+alter table if exists users_roles add constraint FKj6m8fwv7oqv74fcehir1a9ffy foreign key (role_id) references roles;
+alter table if exists users_roles add constraint FK2o0jvgh89lemvvo17cbqvdxaa foreign key (user_id) references users;
+
+create table courses (
+    id bigint generated by default as identity,
+    credit_hours integer,
+    description varchar(255),
+    title varchar(255),
+    teacher_id bigint,
+    primary key (id)
+);
+alter table if exists courses add constraint FKsybhlxoejr4j3teomm5u2bx1n foreign key (teacher_id) references users;
+
+create table course_student (
+    course_id bigint not null,
+    student_id bigint not null,
+    primary key (course_id, student_id)
+);
+alter table if exists course_student add constraint FK1xm3b2rcmr1y4ukv1kqyd2ppo foreign key (student_id) references users;
+alter table if exists course_student add constraint FKmxopx8jsdcrh5ne81rjfvf6ml foreign key (course_id) references courses;
+
+create table enrollments (
+    id bigint generated by default as identity,
+    enrollment_date date,
+    course_id bigint not null,
+    student_id bigint not null,
+    primary key (id)
+);
+alter table if exists enrollments add constraint FK8kf1u1857xgo56xbfmnif2c51 foreign key (course_id) references courses;
+alter table if exists enrollments add constraint FKhxqt6bmw4w3q6y6c34b5k07bw foreign key (student_id) references users;
+
+insert into roles (name) values ('ROLE_USER'), ('ROLE_TEACHER'), ('ROLE_ADMIN');
+insert into users (username, password, email) values
+    ('admin', '$2a$10$abcdefghijklmnopqrstuv', 'admin@example.com'),
+    ('teacher', '$2a$10$abcdefghijklmnopqrstuv', 'teacher@example.com'),
+    ('student1', '$2a$10$abcdefghijklmnopqrstuv', 'student1@example.com'),
+    ('student2', '$2a$10$abcdefghijklmnopqrstuv', 'student2@example.com');
+insert into users_roles (user_id, role_id) values (1, 3), (2, 2), (3, 1), (4, 1);
+insert into courses (title, description, credit_hours, teacher_id) values
+    ('Algebra', 'Groups and rings', 4, 2),
+    ('Databases', 'SQL and indexes', 3, 2);
+insert into course_student (course_id, student_id) values (1, 3), (2, 4);
+-- повторное зачисление: V3 оставляет самое раннее и делает пару уникальной
+insert into enrollments (student_id, course_id, enrollment_date) values
+    (3, 1, date '2024-09-01'),
+    (4, 2, date '2024-09-01'),
+    (3, 1, date '2024-09-02');